@@ -0,0 +1,104 @@
+import jason.JasonException;
+import jason.RevisionFailedException;
+import jason.architecture.AgArch;
+import jason.asSemantics.*;
+import jason.asSyntax.*;
+
+import java.io.File;
+import java.util.*;
+
+/**
+*   An asl file parsed once and shared by every agent that runs it.
+*
+*   Agent.initAg(String) reads and parses the file again for each agent, and
+*   each agent then holds its own copy of the same plans. A template keeps
+*   the plan library and the initial beliefs and goals of one file; agents
+*   created from it share the plan library and get their own belief base,
+*   circumstance and copies of the initial beliefs and goals.
+*
+*   Jason only reads the plan library while reasoning (an intended plan is
+*   copied before its variables are bound), so sharing it between agents on
+*   different threads is safe as long as no plan adds or removes plans at
+*   run time (.add_plan, .remove_plan or a tellHow message), which none of
+*   the AgentSpecifications do.
+*/
+final class AgentTemplate
+{
+    private static final Map<String, AgentTemplate> s_templates = new HashMap<String, AgentTemplate>();
+
+    private final String m_asl;
+    private final PlanLibrary m_plans;
+    private final List<Literal> m_initialBels;
+    private final List<Literal> m_initialGoals;
+
+    private AgentTemplate(String asl, Agent parsed)
+    {
+	m_asl = asl;
+	m_plans = parsed.getPL();
+	m_initialBels = new ArrayList<Literal>(parsed.getInitialBels());
+	m_initialGoals = new ArrayList<Literal>(parsed.getInitialGoals());
+    }
+
+    /**
+     * @brief The template of an asl file, which is parsed the first time
+     * it is asked for.
+     */
+    public static synchronized AgentTemplate forFile(String asl)
+	throws JasonException
+    {
+	AgentTemplate template = s_templates.get(asl);
+	if(template == null)
+	    {
+		template = new AgentTemplate(asl, parse(asl));
+		s_templates.put(asl, template);
+	    }
+	return template;
+    }
+
+    public PlanLibrary getPL()
+    {
+	return m_plans;
+    }
+
+    /**
+     * @brief Loads the template into an agent whose transition system has
+     * been created, in place of Agent.initAg(String).
+     */
+    public void initAg(Agent ag)
+	throws JasonException
+    {
+	ag.initAg();
+	ag.setASLSrc(m_asl);
+	ag.setPL(m_plans);
+	if(m_plans.hasMetaEventPlans())
+	    ag.getTS().addGoalListener(new GoalListenerForMetaEvents(ag.getTS()));
+
+	// Beliefs and goals are annotated as they are added, so each agent
+	// gets its own copies
+	for(Literal bel : m_initialBels)
+	    ag.addInitialBel(bel.copy());
+	for(Literal goal : m_initialGoals)
+	    ag.addInitialGoal(goal.copy());
+	try{
+	    ag.addInitialBelsInBB();
+	}catch(RevisionFailedException e){
+	    throw new JasonException("cannot add the initial beliefs of " + m_asl + ": " + e);
+	}
+	ag.addInitialGoalsInTS();
+    }
+
+    //---------------------------------------------------------------------------
+    // This function parses an asl file the way Agent.load() does, without
+    // adding its initial beliefs and goals to the agent that parses it
+    private static Agent parse(String asl)
+	throws JasonException
+    {
+	Agent parsed = new Agent();
+	new TransitionSystem(parsed, new Circumstance(), new jason.runtime.Settings(), new AgArch());
+	parsed.initAg();
+	if(!parsed.parseAS(new File(asl)))
+	    throw new JasonException("cannot parse " + asl);
+	parsed.loadKqmlPlans();
+	return parsed;
+    }
+}
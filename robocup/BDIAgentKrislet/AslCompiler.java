@@ -0,0 +1,508 @@
+import jason.architecture.AgArch;
+import jason.asSemantics.*;
+import jason.asSyntax.*;
+import jason.runtime.Settings;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+*   Compiles asl files into CompiledAgent subclasses, Java code that makes
+*   the same decisions as Jason running the files.
+*
+*   Run with: java -cp .;jason-2.3.jar AslCompiler [-d directory] file.asl...
+*   and compile the generated Compiled*.java files with the rest of the
+*   player. Players use them when started with -engine compiled.
+*
+*   Only the subset of AgentSpecification the role files use can be
+*   compiled: one initial goal, initial beliefs, and plans for +!goal whose
+*   context combines beliefs with &, | and not, and whose body performs
+*   actions, posts goals with ! and adds or removes beliefs with + and -.
+*   Goals, beliefs and actions have no arguments or annotations. Anything
+*   else is reported and the file is not compiled.
+*
+*   A belief is a percept when it is the percept of a Belief, and a mental
+*   note when the plans add or remove it; a belief that is neither is never
+*   true. Each plan context becomes a mask test over the cycle's BeliefSet
+*   and the mental notes, each step of a plan body a state whose successor
+*   is the next step, and END after the last.
+*/
+public class AslCompiler {
+
+    private final String asl;
+    private final List<Plan> plans = new ArrayList<Plan>();
+    private final List<String> warnings = new ArrayList<String>();
+
+    // Goals, mental notes and percepts by name, in order of appearance,
+    // with the Java constant each is generated as
+    private final Map<String, String> goals = new LinkedHashMap<String, String>();
+    private final Map<String, String> notes = new LinkedHashMap<String, String>();
+    private final Map<String, String> percepts = new LinkedHashMap<String, String>();
+    private final Set<String> constants = new HashSet<String>();
+
+    private String initialGoal;
+    private final List<String> initialNotes = new ArrayList<String>();
+
+    private AslCompiler(String asl) {
+        this.asl = asl;
+    }
+
+    public static void main(String a[]) throws IOException {
+        String directory = ".";
+        int first = 0;
+        if (a.length > 1 && a[0].equals("-d")) {
+            directory = a[1];
+            first = 2;
+        }
+        if (first >= a.length) {
+            System.err.println("USAGE: AslCompiler [-d directory] file.asl...");
+            System.exit(1);
+        }
+
+        int failures = 0;
+        for (int i = first; i < a.length; i++) {
+            try {
+                compile(a[i], directory);
+            }catch(IllegalArgumentException e){
+                System.err.println(e.getMessage());
+                failures++;
+            }
+        }
+        // Jason leaves non-daemon threads running
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+    *   Compiles an asl file into a Java file in a directory.
+    *   @throws IllegalArgumentException If the file cannot be compiled.
+    */
+    public static void compile(String asl, String directory) throws IOException {
+        AslCompiler compiler = new AslCompiler(asl);
+        compiler.read();
+        String name = CompiledAgent.className(asl);
+        Path file = Paths.get(directory, name + ".java");
+        Files.write(file, compiler.generate(name, CompiledAgent.crc(asl)).getBytes("UTF-8"));
+        for (String warning : compiler.warnings) {
+            System.out.println(asl + ": " + warning);
+        }
+        System.out.println(asl + " -> " + file + " (" + compiler.plans.size() + " plans)");
+    }
+
+    //---------------------------------------------------------------------------
+    // Reading the asl file
+
+    /**
+    *   Parses the file with Jason and collects its goals, beliefs and plans.
+    */
+    private void read() {
+        Agent parsed = new Agent();
+        new TransitionSystem(parsed, new Circumstance(), new Settings(), new AgArch());
+        parsed.initAg();
+        if (!parsed.parseAS(new File(asl))) {
+            throw new IllegalArgumentException(asl + ": cannot parse");
+        }
+
+        if (parsed.getInitialGoals().size() > 1) {
+            throw new IllegalArgumentException(asl + ": more than one initial goal");
+        }
+        for (Literal goal : parsed.getInitialGoals()) {
+            initialGoal = atom(goal, "initial goal");
+            goal(initialGoal);
+        }
+        for (Literal bel : parsed.getInitialBels()) {
+            if (bel.isRule()) {
+                throw new IllegalArgumentException(asl + ": rule " + bel + " cannot be compiled");
+            }
+            initialNotes.add(note(atom(bel, "initial belief")));
+        }
+
+        for (Plan plan : parsed.getPL()) {
+            Trigger trigger = plan.getTrigger();
+            if (trigger.getOperator() != Trigger.TEOperator.add || trigger.getType() != Trigger.TEType.achieve) {
+                throw error(plan, "only +!goal plans can be compiled, not " + trigger);
+            }
+            goal(atom(plan, trigger.getLiteral()));
+            for (PlanBody step = plan.getBody(); step != null && !step.isEmptyBody(); step = step.getBodyNext()) {
+                readStep(plan, step);
+            }
+            plans.add(plan);
+        }
+
+        // Beliefs the plans test are percepts unless they are mental notes
+        for (Plan plan : plans) {
+            readContext(plan, plan.getContext());
+        }
+    }
+
+    private void readStep(Plan plan, PlanBody step) {
+        Term term = step.getBodyTerm();
+        switch (step.getBodyType()) {
+        case action:
+            atom(plan, term);
+            if (Intent.forAction(((Literal)term).getFunctor()) == null) {
+                warnings.add("action " + term + " (line " + line(plan) + ") is not an Intent, "
+                             + JasonAgent.UNKNOWN_ACTION_INTENT + " will be performed instead");
+            }
+            break;
+        case achieve:
+            goal(atom(plan, term));
+            break;
+        case addBel:
+        case delBel:
+            note(atom(plan, term));
+            break;
+        default:
+            throw error(plan, "step " + step + " cannot be compiled");
+        }
+    }
+
+    private void readContext(Plan plan, LogicalFormula context) {
+        if (context == null || context == Literal.LTrue) {
+            return;
+        }
+        if (context instanceof LogExpr) {
+            LogExpr expr = (LogExpr)context;
+            readContext(plan, expr.getLHS());
+            if (expr.getOp() != LogExpr.LogicalOp.not) {
+                readContext(plan, expr.getRHS());
+            }
+            return;
+        }
+        String name = atom(plan, context);
+        Belief belief = Belief.forPercept(name);
+        if (belief != null) {
+            constant(percepts, name);
+        }else if (!notes.containsKey(name)) {
+            warnings.add("belief " + name + " (line " + line(plan) + ") is never perceived or added, so it is never true");
+        }
+    }
+
+    /**
+    *   @return The name of a term that must be an atom: no arguments, no
+    *   annotations and no strong negation.
+    */
+    private String atom(Plan plan, Term term) {
+        if (!(term instanceof Literal) || term instanceof InternalActionLiteral
+            || ((Literal)term).getArity() != 0 || ((Literal)term).hasAnnot() || ((Literal)term).negated()) {
+            throw error(plan, term + " is not an atom");
+        }
+        return ((Literal)term).getFunctor();
+    }
+
+    private String atom(Literal literal, String what) {
+        if (literal.getArity() != 0 || literal.hasAnnot() || literal.negated()) {
+            throw new IllegalArgumentException(asl + ": " + what + " " + literal + " is not an atom");
+        }
+        return literal.getFunctor();
+    }
+
+    private String goal(String name) {
+        return constant(goals, name);
+    }
+
+    private String note(String name) {
+        return constant(notes, name);
+    }
+
+    /**
+    *   @return The Java constant for a name, made up from the name the first
+    *   time it is asked for.
+    */
+    private String constant(Map<String, String> names, String name) {
+        String constant = names.get(name);
+        if (constant == null) {
+            constant = name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+            // A goal, note and percept of the same name
+            while (constants.contains(constant)) {
+                constant += "_";
+            }
+            constants.add(constant);
+            names.put(name, constant);
+        }
+        return constant;
+    }
+
+    private IllegalArgumentException error(Plan plan, String message) {
+        return new IllegalArgumentException(asl + ":" + line(plan) + ": " + message);
+    }
+
+    private static int line(Plan plan) {
+        return plan.getSrcInfo() == null ? 0 : plan.getSrcInfo().getSrcLine();
+    }
+
+    //---------------------------------------------------------------------------
+    // Generating the Java class
+
+    private String generate(String name, long crc) {
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by AslCompiler from ").append(asl).append(", do not edit.\n")
+           .append("// Run AslCompiler again after changing the asl file.\n\n")
+           .append("/**\n")
+           .append("*   The plans of ").append(asl).append(" as a state machine, see CompiledAgent.\n")
+           .append("*/\n")
+           .append("final class ").append(name).append(" extends CompiledAgent {\n\n")
+           .append("    static final String ASL = \"").append(asl.replace("\\", "/")).append("\";\n")
+           .append("    static final long SOURCE_CRC = 0x").append(Long.toHexString(crc)).append("L;\n");
+
+        if (!percepts.isEmpty()) {
+            out.append("\n    // Percepts\n");
+            for (Map.Entry<String, String> percept : percepts.entrySet()) {
+                out.append("    private static final long ").append(percept.getValue())
+                   .append(" = Belief.").append(Belief.forPercept(percept.getKey()).name()).append(".mask;\n");
+            }
+        }
+        if (!notes.isEmpty()) {
+            if (notes.size() > Long.SIZE) {
+                throw new IllegalArgumentException(asl + ": more than " + Long.SIZE + " mental notes");
+            }
+            out.append("\n    // Mental notes\n");
+            int bit = 0;
+            for (String constant : notes.values()) {
+                out.append("    private static final long ").append(constant).append(" = 1L << ").append(bit++).append(";\n");
+            }
+        }
+        out.append("\n    // Goals\n");
+        int number = 0;
+        for (String constant : goals.values()) {
+            out.append("    private static final int ").append(constant).append(" = ").append(number++).append(";\n");
+        }
+        out.append("\n    private static final String[] GOAL_NAMES = {\"")
+           .append(String.join("\", \"", goals.keySet())).append("\"};\n\n");
+
+        List<String> initial = new ArrayList<String>();
+        for (String note : initialNotes) {
+            initial.add(notes.get(note));
+        }
+        out.append("    ").append(name).append("() {\n")
+           .append("        super(ASL, SOURCE_CRC, GOAL_NAMES, ")
+           .append(initialGoal == null ? "NO_PLAN" : goals.get(initialGoal)).append(", ")
+           .append(initial.isEmpty() ? "0L" : String.join(" | ", initial)).append(");\n")
+           .append("    }\n");
+
+        // Number the states: END is 0, then each step of each plan in turn
+        Map<Plan, Integer> firstStates = new HashMap<Plan, Integer>();
+        int states = 1;
+        for (Plan plan : plans) {
+            int size = plan.getBody().isEmptyBody() ? 0 : plan.getBody().getPlanSize();
+            firstStates.put(plan, size == 0 ? 0 : states);
+            states += size;
+        }
+
+        out.append("\n    @Override\n")
+           .append("    protected int select(int goal, long p, long n) {\n")
+           .append("        switch (goal) {\n");
+        for (Map.Entry<String, String> goal : goals.entrySet()) {
+            out.append("        case ").append(goal.getValue()).append(":\n");
+            boolean applicable = false;
+            for (Plan plan : plans) {
+                if (!plan.getTrigger().getLiteral().getFunctor().equals(goal.getKey())) {
+                    continue;
+                }
+                String condition = condition(plan.getContext());
+                out.append("            // ").append(describe(plan)).append("\n");
+                if (condition.equals("false")) {
+                    out.append("            // never chosen, as a belief it needs is never true\n");
+                    continue;
+                }
+                if (condition.equals("true")) {
+                    // Later plans for the goal are never chosen
+                    out.append("            return ").append(firstStates.get(plan)).append(";\n");
+                    applicable = true;
+                    break;
+                }
+                out.append("            if (").append(condition).append(") {\n")
+                   .append("                return ").append(firstStates.get(plan)).append(";\n")
+                   .append("            }\n");
+            }
+            if (!applicable) {
+                out.append("            return NO_PLAN;\n");
+            }
+        }
+        out.append("        default:\n")
+           .append("            return NO_PLAN;\n")
+           .append("        }\n")
+           .append("    }\n");
+
+        out.append("\n    @Override\n")
+           .append("    protected int step(int state) {\n")
+           .append("        switch (state) {\n");
+        for (Plan plan : plans) {
+            int state = firstStates.get(plan);
+            if (state == 0) {
+                continue;
+            }
+            out.append("        // ").append(describe(plan)).append("\n");
+            for (PlanBody step = plan.getBody(); step != null && !step.isEmptyBody(); step = step.getBodyNext()) {
+                boolean last = step.getBodyNext() == null || step.getBodyNext().isEmptyBody();
+                out.append("        case ").append(state).append(": return ")
+                   .append(call(step)).append(", ").append(last ? "END" : String.valueOf(state + 1)).append(");\n");
+                state++;
+            }
+        }
+        out.append("        default:\n")
+           .append("            throw new IllegalStateException(\"no state \" + state);\n")
+           .append("        }\n")
+           .append("    }\n")
+           .append("}\n");
+        return out.toString();
+    }
+
+    private static String describe(Plan plan) {
+        return plan.getTrigger() + (plan.getContext() == null ? "" : " : " + render(plan.getContext(), null))
+            + " (line " + line(plan) + ")";
+    }
+
+    /**
+    *   @return A context as it is written in asl, with parentheses only
+    *   where the operators need them.
+    */
+    private static String render(LogicalFormula formula, LogExpr.LogicalOp outer) {
+        if (!(formula instanceof LogExpr)) {
+            return formula.toString();
+        }
+        LogExpr expr = (LogExpr)formula;
+        if (expr.getOp() == LogExpr.LogicalOp.not) {
+            return "not " + render(expr.getLHS(), LogExpr.LogicalOp.not);
+        }
+        String rendered = render(expr.getLHS(), expr.getOp()) + (expr.getOp() == LogExpr.LogicalOp.and ? " & " : " | ")
+            + render(expr.getRHS(), expr.getOp());
+        return outer == null || outer == expr.getOp() ? rendered : "(" + rendered + ")";
+    }
+
+    /**
+    *   @return The call to CompiledAgent that performs a step, without the
+    *   next state and closing parenthesis.
+    */
+    private String call(PlanBody step) {
+        String name = ((Literal)step.getBodyTerm()).getFunctor();
+        switch (step.getBodyType()) {
+        case action:
+            Intent intent = Intent.forAction(name);
+            return "act(" + (intent == null ? "null" : "Intent." + intent.name());
+        case achieve:
+            return "achieve(" + goals.get(name);
+        case addBel:
+            return "believe(" + notes.get(name);
+        default:
+            return "disbelieve(" + notes.get(name);
+        }
+    }
+
+    //---------------------------------------------------------------------------
+    // Compiling plan contexts
+
+    /**
+    *   @return A Java expression over p (the perceptions) and n (the mental
+    *   notes) that is true when the context holds.
+    */
+    private String condition(LogicalFormula context) {
+        if (context == null || context == Literal.LTrue) {
+            return "true";
+        }
+        if (context instanceof LogExpr && ((LogExpr)context).getOp() == LogExpr.LogicalOp.or) {
+            List<LogicalFormula> terms = new ArrayList<LogicalFormula>();
+            flatten(context, LogExpr.LogicalOp.or, terms);
+            List<String> disjuncts = new ArrayList<String>();
+            for (LogicalFormula term : terms) {
+                String disjunct = condition(term);
+                if (disjunct.equals("true")) {
+                    return "true";
+                }
+                if (!disjunct.equals("false")) {
+                    disjuncts.add(disjunct.contains("&&") ? "(" + disjunct + ")" : disjunct);
+                }
+            }
+            return disjuncts.isEmpty() ? "false" : String.join(" || ", disjuncts);
+        }
+        List<LogicalFormula> terms = new ArrayList<LogicalFormula>();
+        flatten(context, LogExpr.LogicalOp.and, terms);
+        return conjunction(terms);
+    }
+
+    /**
+    *   Folds the beliefs and negated beliefs of a conjunction into one mask
+    *   test per word, (p & (A | B | C)) == (A | B) for a & b & not c.
+    */
+    private String conjunction(List<LogicalFormula> terms) {
+        Map<String, Boolean> perceived = new LinkedHashMap<String, Boolean>();
+        Map<String, Boolean> noted = new LinkedHashMap<String, Boolean>();
+        List<String> others = new ArrayList<String>();
+        for (LogicalFormula term : terms) {
+            boolean positive = true;
+            LogicalFormula atom = term;
+            if (term instanceof LogExpr && ((LogExpr)term).getOp() == LogExpr.LogicalOp.not
+                && !(((LogExpr)term).getLHS() instanceof LogExpr)) {
+                positive = false;
+                atom = ((LogExpr)term).getLHS();
+            }
+            if (atom instanceof LogExpr) {
+                LogExpr expr = (LogExpr)atom;
+                boolean negated = expr.getOp() == LogExpr.LogicalOp.not;
+                String other = condition(negated ? expr.getLHS() : expr);
+                if (other.equals(negated ? "true" : "false")) {
+                    return "false";
+                }
+                if (!other.equals(negated ? "false" : "true")) {
+                    others.add(negated ? "!(" + other + ")" : "(" + other + ")");
+                }
+                continue;
+            }
+            if (atom == Literal.LTrue) {
+                if (!positive) {
+                    return "false";
+                }
+                continue;
+            }
+
+            String name = ((Literal)atom).getFunctor();
+            boolean isPercept = percepts.containsKey(name);
+            boolean isNote = notes.containsKey(name);
+            if (isPercept && isNote) {
+                // Believed when perceived or noted
+                String either = "((p & " + percepts.get(name) + ") != 0 || (n & " + notes.get(name) + ") != 0)";
+                others.add(positive ? either : "!" + either);
+            }else if (isPercept) {
+                perceived.put(percepts.get(name), positive);
+            }else if (isNote) {
+                noted.put(notes.get(name), positive);
+            }else if (positive) {
+                return "false";
+            }
+        }
+
+        List<String> tests = new ArrayList<String>();
+        if (!perceived.isEmpty()) {
+            tests.add(maskTest("p", perceived));
+        }
+        if (!noted.isEmpty()) {
+            tests.add(maskTest("n", noted));
+        }
+        tests.addAll(others);
+        return tests.isEmpty() ? "true" : String.join(" && ", tests);
+    }
+
+    private static String maskTest(String word, Map<String, Boolean> bits) {
+        List<String> all = new ArrayList<String>(bits.keySet());
+        List<String> set = new ArrayList<String>();
+        for (Map.Entry<String, Boolean> bit : bits.entrySet()) {
+            if (bit.getValue()) {
+                set.add(bit.getKey());
+            }
+        }
+        if (all.size() == 1) {
+            return "(" + word + " & " + all.get(0) + ") " + (set.isEmpty() ? "==" : "!=") + " 0";
+        }
+        return "(" + word + " & (" + String.join(" | ", all) + ")) == "
+            + (set.isEmpty() ? "0" : set.size() == 1 ? set.get(0) : "(" + String.join(" | ", set) + ")");
+    }
+
+    private static void flatten(LogicalFormula formula, LogExpr.LogicalOp op, List<LogicalFormula> terms) {
+        if (formula instanceof LogExpr && ((LogExpr)formula).getOp() == op) {
+            flatten(((LogExpr)formula).getLHS(), op, terms);
+            flatten(((LogExpr)formula).getRHS(), op, terms);
+        }else {
+            terms.add(formula);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.*;
+
 /**
 *   Descritized environment states into a list of perception beliefs (atomic propositions) that the
 *   BDI agent can have about its environment.
@@ -6,6 +8,9 @@
 *   intention based on the perceived environment.
 *
 *   Each of the beliefs are determined to be true/false in the Brain class getPerceptions() operation.
+*
+*   A cycle's beliefs are passed around as a BeliefSet, one bit per belief, so
+*   there can be at most 64 beliefs.
 */
 public enum Belief {
     BALL_SEEN,
@@ -58,5 +63,36 @@ public enum Belief {
     SAME_GOAL_LINE_SEEN,
 
 
-    TESTING
+    TESTING;
+
+    /** This belief's bit in a BeliefSet. */
+    public final long mask;
+
+    /** Beliefs by the name of their percept, e.g. ball_seen for BALL_SEEN. */
+    private static final Map<String, Belief> BY_PERCEPT = new HashMap<String, Belief>();
+
+    static {
+        for (Belief belief : values()) {
+            BY_PERCEPT.put(belief.getPerceptName(), belief);
+        }
+    }
+
+    Belief() {
+        mask = 1L << ordinal();
+    }
+
+    /**
+    *   @return The name of the percept that gives this belief to Jason.
+    */
+    public String getPerceptName() {
+        return name().toLowerCase();
+    }
+
+    /**
+    *   @param functor The functor of a percept literal.
+    *   @return The belief with that percept name, or null if there is none.
+    */
+    public static Belief forPercept(String functor) {
+        return BY_PERCEPT.get(functor);
+    }
 }
@@ -0,0 +1,100 @@
+/**
+*   Operations on a set of Beliefs stored in a single long, one bit per belief
+*   (see Belief.mask).
+*
+*   A whole cycle's perceptions fit in one primitive value, so building,
+*   comparing and diffing them against the previous cycle does not allocate.
+*   Iterate over a set with first() and next():
+*
+*       for (long s = set; s != 0; s = BeliefSet.next(s)) {
+*           Belief belief = BeliefSet.first(s);
+*       }
+*/
+public final class BeliefSet {
+
+    public static final long EMPTY = 0L;
+
+    /** Every belief, as a mask that keeps a whole set. */
+    public static final long ALL = ~EMPTY;
+
+    private static final Belief[] BELIEFS = Belief.values();
+
+    static {
+        if (BELIEFS.length > Long.SIZE) {
+            throw new ExceptionInInitializerError("Too many beliefs for a BeliefSet: " + BELIEFS.length);
+        }
+    }
+
+    private BeliefSet() {
+    }
+
+    /** @brief Builds a set from the given beliefs. */
+    public static long of(Belief... beliefs) {
+        long set = EMPTY;
+        for (Belief belief : beliefs) {
+            set |= belief.mask;
+        }
+        return set;
+    }
+
+    public static boolean contains(long set, Belief belief) {
+        return (set & belief.mask) != 0;
+    }
+
+    public static int size(long set) {
+        return Long.bitCount(set);
+    }
+
+    /** @brief Beliefs in current that were not in previous. */
+    public static long added(long previous, long current) {
+        return current & ~previous;
+    }
+
+    /** @brief Beliefs in previous that are no longer in current. */
+    public static long removed(long previous, long current) {
+        return previous & ~current;
+    }
+
+    /** @brief The belief with the lowest ordinal in a non-empty set. */
+    public static Belief first(long set) {
+        return BELIEFS[Long.numberOfTrailingZeros(set)];
+    }
+
+    /** @brief The set without its first() belief. */
+    public static long next(long set) {
+        return set & (set - 1);
+    }
+
+    /**
+     * @brief Appends the set as "[BALL_SEEN, AT_BALL]" to a reusable builder,
+     * so logging does not have to allocate a new string every cycle.
+     */
+    public static StringBuilder appendTo(StringBuilder builder, long set) {
+        builder.append('[');
+        for (long s = set; s != 0; s = next(s)) {
+            builder.append(first(s).name());
+            if (next(s) != 0) {
+                builder.append(", ");
+            }
+        }
+        return builder.append(']');
+    }
+
+    public static String toString(long set) {
+        return appendTo(new StringBuilder(), set).toString();
+    }
+
+    /**
+     * @brief Reads a set written by toString(), e.g. "[BALL_SEEN, AT_BALL]".
+     * @throws IllegalArgumentException If a name is not a Belief.
+     */
+    public static long parse(String text) {
+        long set = EMPTY;
+        for (String name : text.replaceAll("[\\[\\]\\s]", "").split(",")) {
+            if (!name.isEmpty()) {
+                set |= Belief.valueOf(name).mask;
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,518 @@
+import java.io.*;
+import java.lang.management.*;
+import java.nio.*;
+import java.util.*;
+
+/**
+*   Micro-benchmarks for the hot paths of the player. Checks makes sure
+*   the paths compared here behave alike.
+*
+*   Run with: java -cp .;jason-2.3.jar Benchmarks [name] [arguments]
+*   where name is one of the benchmarks below (default: all of them).
+*/
+class Benchmarks
+{
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String a[])
+	throws IOException
+    {
+	String name = a.length > 0 ? a[0] : "all";
+	if(name.equals("all") || name.equals("encoder"))
+	    encoder();
+	if(name.equals("all") || name.equals("see"))
+	    see(a.length > 1 ? a[1] : null);
+	if(name.equals("all") || name.equals("perceive"))
+	    perceive(a.length > 1 ? a[1] : "AgentSpecifications/midfielder.asl");
+	if(name.equals("all") || name.equals("beliefs"))
+	    beliefs(a.length > 1 ? a[1] : "AgentSpecifications/midfielder.asl");
+	if(name.equals("all") || name.equals("agents"))
+	    agents(a.length > 1 ? Integer.parseInt(a[1]) : 22,
+		   a.length > 2 ? a[2] : "AgentSpecifications/midfielder.asl");
+	if(name.equals("all") || name.equals("engines"))
+	    engines(Arrays.copyOfRange(a, Math.min(1, a.length), a.length));
+	if(name.equals("all") || name.equals("latency"))
+	    latency();
+	if(name.equals("all") || name.equals("deliberation"))
+	    deliberation(Arrays.copyOfRange(a, Math.min(1, a.length), a.length));
+	if(name.equals("all") || name.equals("cache"))
+	    cache(a.length > 1 ? Integer.parseInt(a[1]) : 256,
+		  Arrays.copyOfRange(a, Math.min(2, a.length), a.length));
+	// Not part of "all": it runs in real time
+	if(name.equals("scale"))
+	    scale(a.length > 1 ? Integer.parseInt(a[1]) : 100,
+		  a.length > 2 && a[2].equals("virtual"),
+		  a.length > 3 ? Integer.parseInt(a[3]) : 10);
+
+	// Jason leaves non-daemon threads running
+	System.exit(0);
+    }
+
+    //---------------------------------------------------------------------------
+    // Encodes the five movement commands with CommandEncoder and with the
+    // string concatenation Krislet used before, and reports time and bytes
+    // allocated per command for each
+    private static void encoder()
+    {
+	CommandEncoder encoder = new CommandEncoder(ByteBuffer.allocateDirect(4096));
+	long sink = 0;
+
+	for(int i = 0 ; i < WARMUP ; i ++)
+	    sink += encodeAll(encoder, i) + concatenateAll(i);
+
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < ITERATIONS ; i ++)
+	    sink += encodeAll(encoder, i);
+	report("encoder", "CommandEncoder", start, allocated, 5L * ITERATIONS);
+
+	start = System.nanoTime();
+	allocated = allocatedBytes();
+	for(int i = 0 ; i < ITERATIONS ; i ++)
+	    sink += concatenateAll(i);
+	report("encoder", "String + getBytes", start, allocated, 5L * ITERATIONS);
+
+	System.out.println("(checksum " + sink + ")");
+    }
+
+    private static int encodeAll(CommandEncoder encoder, int i)
+    {
+	double x = i * 0.37 - 90;
+	int bytes = 0;
+	bytes += encoder.begin("turn").append(x).end().remaining();
+	bytes += encoder.begin("dash").append(x + 100).end().remaining();
+	bytes += encoder.begin("kick").append(75).append(x).end().remaining();
+	bytes += encoder.begin("move").append(-x).append(x / 3).end().remaining();
+	bytes += encoder.begin("turn_neck").append(x / 2).end().remaining();
+	return bytes;
+    }
+
+    private static int concatenateAll(int i)
+    {
+	double x = i * 0.37 - 90;
+	int bytes = 0;
+	bytes += ("(turn " + Double.toString(x) + ")").getBytes().length;
+	bytes += ("(dash " + Double.toString(x + 100) + ")").getBytes().length;
+	bytes += ("(kick " + Double.toString(75) + " " + Double.toString(x) + ")").getBytes().length;
+	bytes += ("(move " + Double.toString(-x) + " " + Double.toString(x / 3) + ")").getBytes().length;
+	bytes += ("(turn_neck " + Double.toString(x / 2) + ")").getBytes().length;
+	return bytes;
+    }
+
+    //---------------------------------------------------------------------------
+    // Times SeeParser and the original regex parser on a corpus of see
+    // messages, one per line (by default the recorded ones Checks uses)
+    private static void see(String corpusFile)
+	throws IOException
+    {
+	List<String> corpus = Checks.readSeeCorpus(corpusFile != null ? corpusFile : Checks.SEE_CORPUS);
+	int rounds = Math.max(1, 200000 / corpus.size());
+	long sink = 0;
+	for(int i = 0 ; i < rounds ; i ++)
+	    sink += parseAll(corpus, false) + parseAll(corpus, true);
+
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < rounds ; i ++)
+	    sink += parseAll(corpus, false);
+	report("see", "SeeParser", start, allocated, (long)rounds * corpus.size());
+
+	start = System.nanoTime();
+	allocated = allocatedBytes();
+	for(int i = 0 ; i < rounds ; i ++)
+	    sink += parseAll(corpus, true);
+	report("see", "regex", start, allocated, (long)rounds * corpus.size());
+
+	System.out.println("(checksum " + sink + ")");
+    }
+
+    private static int parseAll(List<String> corpus, boolean regex)
+	throws IOException
+    {
+	int objects = 0;
+	for(String message : corpus)
+	    {
+		VisualInfo info = new VisualInfo(message);
+		if(regex)
+		    info.parseWithRegex();
+		else
+		    info.parse();
+		objects += info.m_objects.size();
+	    }
+	return objects;
+    }
+
+    //---------------------------------------------------------------------------
+    // Times JasonAgent.perceive() with the shared percept literals against the
+    // previous implementation, which parsed every belief on every call
+    private static void perceive(String asl)
+    {
+	JasonAgent agent = new JasonAgent(asl);
+	long[] cycles = {
+	    BeliefSet.of(Belief.BALL_SEEN, Belief.FACING_BALL, Belief.BALL_TO_LEFT,
+			 Belief.ENEMY_GOAL_SEEN, Belief.ENEMY_GOAL_TO_RIGHT, Belief.BALL_ON_ENEMY_SIDE,
+			 Belief.CENTRE_SEEN, Belief.CENTRE_TO_LEFT, Belief.TEAMMATE_AVAILABLE),
+	    BeliefSet.of(Belief.OWN_GOAL_SEEN, Belief.ON_OWN_SIDE, Belief.OWN_PENALTY_SEEN,
+			 Belief.OWN_PENALTY_TO_RIGHT, Belief.OWN_GOAL_LINE_SEEN),
+	    BeliefSet.of(Belief.BALL_SEEN, Belief.AT_BALL, Belief.FACING_BALL, Belief.BALL_TO_RIGHT,
+			 Belief.BALL_MED_DIST_FROM_GOALIE, Belief.ENEMY_AT_BALL, Belief.TEAMMATE_AVAILABLE,
+			 Belief.TEAMMATE_CLOSER_TO_BALL, Belief.BALL_ON_OWN_SIDE),
+	};
+	// parseLiteral is slow, so fewer iterations than the other benchmarks
+	int iterations = ITERATIONS / 100;
+	long sink = 0;
+	for(int i = 0 ; i < WARMUP / 20 ; i ++)
+	    {
+		agent.cyclePerceptions = cycles[i % cycles.length];
+		sink += agent.perceive().size() + parsePercepts(cycles[i % cycles.length]).size();
+	    }
+
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    {
+		agent.cyclePerceptions = cycles[i % cycles.length];
+		sink += agent.perceive().size();
+	    }
+	report("perceive", "shared literals", start, allocated, iterations);
+
+	start = System.nanoTime();
+	allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    sink += parsePercepts(cycles[i % cycles.length]).size();
+	report("perceive", "parseLiteral", start, allocated, iterations);
+
+	System.out.println("(checksum " + sink + ")");
+    }
+
+    private static List<jason.asSyntax.Literal> parsePercepts(long perceptions)
+    {
+	List<jason.asSyntax.Literal> l = new ArrayList<jason.asSyntax.Literal>();
+	for(long set = perceptions ; set != 0 ; set = BeliefSet.next(set))
+	    l.add(jason.asSyntax.Literal.parseLiteral(BeliefSet.first(set).toString().toLowerCase()));
+	return l;
+    }
+
+    //---------------------------------------------------------------------------
+    // Times Jason's default belief update and PerceptionAgent's on the same
+    // sequence of cycles, each changing one or two beliefs
+    private static void beliefs(String asl)
+    {
+	JasonAgent source = new JasonAgent(asl);
+	jason.asSemantics.Agent full = Checks.createAgent(new jason.asSemantics.Agent(), asl);
+	PerceptionAgent delta = (PerceptionAgent)Checks.createAgent(new PerceptionAgent(), asl);
+	long[] cycles = Checks.randomTrace(new Random(1), 4096);
+
+	int iterations = ITERATIONS / 10;
+	long sink = 0;
+	for(int i = 0 ; i < WARMUP / 2 ; i ++)
+	    sink += update(source, full, cycles[i % cycles.length])
+		+ update(source, delta, cycles[i % cycles.length]);
+
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    sink += update(source, delta, cycles[i % cycles.length]);
+	report("beliefs", "changed beliefs", start, allocated, iterations);
+
+	// As in every reasoning cycle of a decision after the first
+	start = System.nanoTime();
+	allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    sink += update(source, delta, cycles[0]);
+	report("beliefs", "same beliefs", start, allocated, iterations);
+
+	start = System.nanoTime();
+	allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    sink += update(source, full, cycles[i % cycles.length]);
+	report("beliefs", "Agent.buf", start, allocated, iterations);
+
+	System.out.println("(checksum " + sink + ")");
+    }
+
+    private static int update(JasonAgent source, jason.asSemantics.Agent agent, long perceptions)
+    {
+	source.cyclePerceptions = perceptions;
+	List<jason.asSyntax.Literal> percepts = source.perceive();
+	// Given the set, as JasonAgent does
+	if(agent instanceof PerceptionAgent)
+	    ((PerceptionAgent)agent).setPerceptions(perceptions);
+	int changes = agent.buf(percepts);
+	// Nothing reasons about the events here, so they would pile up
+	agent.getTS().getC().clearEvents();
+	return changes;
+    }
+
+    //---------------------------------------------------------------------------
+    // Creates the given number of agents for one asl file, first each parsing
+    // the file itself as Agent.initAg(String) does, then from the shared
+    // AgentTemplate as JasonAgent does, and reports the time and the heap
+    // still in use per agent for each
+    private static void agents(int count, String asl)
+    {
+	// Parses the file once for the template and warms up the parser
+	new JasonAgent(asl);
+	for(int i = 0 ; i < 20 ; i ++)
+	    Checks.createAgent(new jason.asSemantics.Agent(), asl);
+
+	List<Object> agents = new ArrayList<Object>();
+	long heap = usedHeap();
+	long start = System.nanoTime();
+	for(int i = 0 ; i < count ; i ++)
+	    agents.add(Checks.createAgent(new jason.asSemantics.Agent(), asl));
+	agentsReport("parsed each", start, heap, count);
+
+	agents.clear();
+	heap = usedHeap();
+	start = System.nanoTime();
+	for(int i = 0 ; i < count ; i ++)
+	    agents.add(new JasonAgent(asl));
+	agentsReport("shared plans", start, heap, count);
+    }
+
+    private static void agentsReport(String variant, long start, long heapAtStart, int count)
+    {
+	long elapsed = System.nanoTime() - start;
+	System.out.printf("%-10s %-24s %8.1f us/agent %8.1f KB/agent%n", "agents", variant,
+			  elapsed / 1000.0 / count, (usedHeap() - heapAtStart) / 1024.0 / count);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the heap in use after a garbage collection
+    private static long usedHeap()
+    {
+	for(int i = 0 ; i < 3 ; i ++)
+	    System.gc();
+	return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    //---------------------------------------------------------------------------
+    // Times a decision of JasonAgent and of the CompiledAgent of each role
+    // file on a perception trace recorded with Krislet -record
+    private static void engines(String[] traceFiles)
+	throws IOException
+    {
+	Map<String, long[]> traces = Checks.readTraces(traceFiles);
+	String[] asl = {"goalie", "defender", "midfielder", "Attacker"};
+	for(String role : asl)
+	    {
+		long[] trace = traceOf(role, traces);
+		String file = "AgentSpecifications/" + role + ".asl";
+		JasonAgent jason = new JasonAgent(file);
+		jason.setChangeDriven(false);
+		DecisionEngine compiled = CompiledAgent.forFile(file);
+		if(compiled == null)
+		    continue;
+		int iterations = ITERATIONS / 100;
+		long sink = 0;
+		for(int i = 0 ; i < iterations ; i ++)
+		    sink += jason.getIntent(trace[i % trace.length]).ordinal()
+			+ compiled.getIntent(trace[i % trace.length]).ordinal();
+
+		long start = System.nanoTime();
+		long allocated = allocatedBytes();
+		for(int i = 0 ; i < iterations ; i ++)
+		    sink += jason.getIntent(trace[i % trace.length]).ordinal();
+		report("engines", role + " Jason", start, allocated, iterations);
+
+		start = System.nanoTime();
+		allocated = allocatedBytes();
+		for(int i = 0 ; i < iterations * 100 ; i ++)
+		    sink += compiled.getIntent(trace[i % trace.length]).ordinal();
+		report("engines", role + " compiled", start, allocated, iterations * 100);
+		System.out.println("(checksum " + sink + ")");
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // Times LatencyHistogram.record(), which Brain calls several times a
+    // cycle
+    private static void latency()
+    {
+	Random random = new Random(1);
+	long[] durations = new long[ITERATIONS];
+	for(int i = 0 ; i < durations.length ; i ++)
+	    durations[i] = (long)(Math.exp(random.nextGaussian() * 2 + 10));
+	LatencyHistogram histogram = new LatencyHistogram();
+	for(int i = 0 ; i < WARMUP ; i ++)
+	    histogram.record(durations[i]);
+
+	histogram = new LatencyHistogram();
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < ITERATIONS ; i ++)
+	    histogram.record(durations[i]);
+	report("latency", "record", start, allocated, ITERATIONS);
+	System.out.println("(p99 " + histogram.getPercentile(0.99) + " ns)");
+    }
+
+    //---------------------------------------------------------------------------
+    // Times a JasonAgent that skips decisions when nothing they depend on
+    // has changed and one that reasons every cycle on a perception trace,
+    // and reports how many decisions were skipped
+    private static void deliberation(String[] traceFiles)
+	throws IOException
+    {
+	Map<String, long[]> traces = Checks.readTraces(traceFiles);
+	String[] asl = {"goalie", "defender", "midfielder", "Attacker"};
+	for(String role : asl)
+	    {
+		long[] trace = traceOf(role, traces);
+		String file = "AgentSpecifications/" + role + ".asl";
+		JasonAgent everyCycle = Checks.everyCycleAgent(file);
+		JasonAgent changeDriven = new JasonAgent(file);
+		changeDriven.setDecisionBudget(DecisionEngine.NO_DECISION_BUDGET);
+		timeDecisions("deliberation", role + " every cycle", everyCycle, trace);
+		timeDecisions("deliberation", role + " on change", changeDriven, trace);
+		System.out.println("(" + changeDriven.getSkippedDecisionCount() + " skipped, "
+				   + changeDriven.getReasonedDecisionCount() + " reasoned)");
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // Times a JasonAgent with a DecisionCache of the given capacity and one
+    // without on a perception trace, and reports how often the cache
+    // answered. Neither skips unchanged decisions, which would hide the cache.
+    private static void cache(int capacity, String[] traceFiles)
+	throws IOException
+    {
+	Map<String, long[]> traces = Checks.readTraces(traceFiles);
+	String[] asl = {"goalie", "defender", "midfielder", "Attacker"};
+	for(String role : asl)
+	    {
+		long[] trace = traceOf(role, traces);
+		String file = "AgentSpecifications/" + role + ".asl";
+		JasonAgent plain = Checks.everyCycleAgent(file);
+		JasonAgent cached = Checks.everyCycleAgent(file);
+		cached.setDecisionCache(capacity);
+		timeDecisions("cache", role + " uncached", plain, trace);
+		timeDecisions("cache", role + " cached", cached, trace);
+		DecisionCache stats = cached.getDecisionCache();
+		System.out.println("(" + stats.getHitCount() + " hits, " + stats.getMissCount() + " misses, "
+				   + stats.getBypassCount() + " not cacheable)");
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the recording of a role's game among the traces
+    // Checks reads, or else the first given trace
+    private static long[] traceOf(String role, Map<String, long[]> traces)
+    {
+	long[] trace = traces.get(Checks.recording(role));
+	return trace != null ? trace : traces.values().iterator().next();
+    }
+
+    //---------------------------------------------------------------------------
+    // This function times the decisions of an agent on a trace
+    private static void timeDecisions(String benchmark, String variant, DecisionEngine agent, long[] trace)
+    {
+	int iterations = ITERATIONS / 100;
+	long sink = 0;
+	long start = System.nanoTime();
+	long allocated = allocatedBytes();
+	for(int i = 0 ; i < iterations ; i ++)
+	    sink += agent.getIntent(trace[i % trace.length]).ordinal();
+	report(benchmark, variant, start, allocated, iterations);
+	System.out.println("(checksum " + sink + ")");
+    }
+
+    //---------------------------------------------------------------------------
+    // Runs the given number of brains in this process for some seconds of
+    // real time, feeding them all a see message every simulator step, and
+    // reports how many decisions they made and what it cost in threads and
+    // memory. Commands go to a counter instead of a server.
+    private static void scale(int players, boolean virtual, int seconds)
+	throws IOException
+    {
+	if(virtual && !PlayerThreads.setVirtual(true))
+	    System.out.println("(virtual threads need Java 21, using platform threads)");
+
+	final java.util.concurrent.atomic.AtomicLong commands = new java.util.concurrent.atomic.AtomicLong();
+	SendCommand counter = new SendCommand() {
+		public void move(double x, double y) { commands.incrementAndGet(); }
+		public void turn(double moment) { commands.incrementAndGet(); }
+		public void turn_neck(double moment) { }
+		public void dash(double power) { commands.incrementAndGet(); }
+		public void kick(double power, double direction) { commands.incrementAndGet(); }
+		public void say(String message) { }
+		public void changeView(String angle, String quality) { }
+		public void bye() { }
+		public void done() { }
+	    };
+
+	String[] asl = {"goalie", "defender", "midfielder", "Attacker"};
+	long start = System.nanoTime();
+	List<Brain> brains = new ArrayList<Brain>();
+	for(int p = 0 ; p < players ; p ++)
+	    brains.add(new Brain(counter, "Scale", 'l',
+				 "AgentSpecifications/" + asl[p % asl.length] + ".asl", "play_on"));
+	for(Brain brain : brains)
+	    while(!brain.isAgentLoaded())
+		sleep(1);
+	System.out.printf("scale      %d brains on %s threads loaded in %d ms%n", players,
+			  PlayerThreads.isVirtual() ? "virtual" : "platform",
+			  (System.nanoTime() - start) / 1000000);
+
+	int cycles = seconds * 1000 / SoccerParams.simulator_step;
+	for(int t = 0 ; t < cycles ; t ++)
+	    {
+		VisualInfo info = new VisualInfo(Checks.SEE_SAMPLES[t % 3]);
+		info.parse();
+		for(Brain brain : brains)
+		    brain.see(info);
+		sleep(SoccerParams.simulator_step);
+	    }
+	for(Brain brain : brains)
+	    brain.hear(cycles, "time_over");
+
+	long least = Long.MAX_VALUE;
+	long total = 0;
+	for(Brain brain : brains)
+	    {
+		least = Math.min(least, brain.getDecisionCount());
+		total += brain.getDecisionCount();
+	    }
+	System.out.printf("scale      %d cycles: %.1f decisions per brain (fewest %d), %.2f commands per brain per cycle%n",
+			  cycles, (double)total / players, least, (double)commands.get() / players / cycles);
+	System.out.printf("scale      peak %d JVM threads, %s%n",
+			  ManagementFactory.getThreadMXBean().getPeakThreadCount(), TeamHost.memoryUsage());
+    }
+
+    private static void sleep(long millis)
+    {
+	try{
+	    Thread.sleep(millis);
+	}catch(InterruptedException e){
+	}
+    }
+
+    //===========================================================================
+    // Supporting functions
+
+    //---------------------------------------------------------------------------
+    // This function prints the time and allocation per operation since start
+    private static void report(String benchmark, String variant, long start,
+			       long allocatedAtStart, long operations)
+    {
+	long elapsed = System.nanoTime() - start;
+	long allocated = allocatedBytes() - allocatedAtStart;
+	System.out.printf("%-10s %-24s %8.1f ns/op %8.1f bytes/op%n",
+			  benchmark, variant,
+			  (double)elapsed / operations,
+			  (double)allocated / operations);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the bytes allocated so far by the calling thread,
+    // or 0 when the JVM cannot tell
+    private static long allocatedBytes()
+    {
+	ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	if(threads instanceof com.sun.management.ThreadMXBean)
+	    return ((com.sun.management.ThreadMXBean)threads)
+		.getThreadAllocatedBytes(Thread.currentThread().getId());
+	return 0;
+    }
+}
@@ -16,6 +16,7 @@
 //  Date:           2021/12/10
 
 
+import java.io.*;
 import java.lang.Math;
 import java.util.*;
 import java.util.regex.*;
@@ -31,18 +32,58 @@ import javax.sound.sampled.Line;
 *   then an action is returned and executed by this handler
 */
 
-class Brain extends Thread implements SensorInput
+class Brain implements Runnable, SensorInput
 {
 
 	private SendCommand	m_krislet;			// robot which is controled by this brain
+    private CommandQueue m_commands;        // body commands to m_krislet, one per cycle
+    private long m_queuedPerceptions;       // BeliefSet the queued commands were chosen for
+    private long m_queuedRelevance;         // the part of it their choice depended on
+    private final LatencyStats m_latency = new LatencyStats();
+    volatile private DecisionEngine m_agent;  // once loaded, for PlayerMetrics
     volatile private boolean m_timeOver;
-    private String m_playMode;
+    volatile private String m_playMode;
     private String m_team;
 	private Memory m_memory;				// place where all information is stored
     private char m_side;
 	private String m_agent_asl;
-    private List<Belief> perceptions;
+    private long perceptions;               // BeliefSet of the current cycle
+    private long m_previousPerceptions;     // BeliefSet of the previous cycle
     private ObjectInfo[] environmentObjects;
+    volatile private VisualInfo m_frame;    // see information the current decision is based on
+    volatile private long m_decisions;
+    volatile private long m_staleDecisions; // decisions made on a frame an earlier decision already used
+    volatile private boolean m_agentLoaded;
+
+    // Longest wait for new see information after a turn, in ms. The server
+    // sends it every 150 ms by default.
+    private static final long SEE_TIMEOUT = 3 * SoccerParams.simulator_step;
+
+    // Asynchronous deliberation: the number of each cycle's frame goes to
+    // the deliberation thread, and each decision comes back as the number of
+    // the frame it was made on and its intent, each through a single-slot
+    // handoff. The perceptions and objects of the last FRAMES frames are kept
+    // by number, so an intent is performed on the objects it was decided on.
+    private static final int FRAMES = 4;
+    private static final int INTENT_BITS = 8;   // of a decision, for Intent.ordinal()
+    private static final Intent[] INTENTS = Intent.values();
+    private boolean m_asyncDeliberation;
+    private CycleScheduler m_scheduler;     // wakes the brain once per server cycle
+    private Handoff m_perceptionHandoff;
+    private Handoff m_intentHandoff;
+    private long m_frameNumber;             // of the current cycle's frame
+    private final long[] m_framePerceptions = new long[FRAMES];
+    private final ObjectInfo[][] m_frameObjects = new ObjectInfo[FRAMES][7];
+    volatile private long m_staleIntents;           // cycles that had no new intent and sent no body command
+    volatile private long m_expiredIntents;         // intents dropped as their frame was no longer kept
+    volatile private long m_overwrittenIntents;     // intents replaced before they were performed
+    volatile private long m_overwrittenPerceptions; // perceptions replaced before they were reasoned about
+
+    private boolean m_compiledEngine;       // decide with the CompiledAgent of the asl file
+    private String m_recordFile;            // trace of the perceptions decided on, or null
+    private int m_decisionCache;            // decisions the JasonAgent remembers
+    private PrintWriter m_record;
+    private final StringBuilder m_recordLine = new StringBuilder();
 
 
 	//---------------------------------------------------------------------------
@@ -59,16 +100,44 @@ class Brain extends Thread implements SensorInput
      * @param playMode  String for the state of play in RoboCup.
      */
     public Brain(SendCommand krislet, String team, char side, String agent_asl, String playMode){
+        this(krislet, team, side, agent_asl, playMode, false, new CycleScheduler(), false, null, 0);
+    }
+
+    /**
+     * @brief Constructor for Brain class used by Krislet.
+     * @param asyncDeliberation True to reason on a separate thread, so that a
+     * slow decision does not hold up the command for a cycle.
+     * @param scheduler Wakes the brain once per server cycle.
+     * @param compiledEngine True to decide with the code AslCompiler generated
+     * from the ASL file rather than with Jason.
+     * @param recordFile File to write the perceptions of each decision to, or
+     * null. Benchmarks engines replays such traces.
+     * @param decisionCache Number of decisions the JasonAgent remembers (see
+     * DecisionCache), or 0 to reason every cycle.
+     */
+    public Brain(SendCommand krislet, String team, char side, String agent_asl, String playMode,
+                 boolean asyncDeliberation, CycleScheduler scheduler,
+                 boolean compiledEngine, String recordFile, int decisionCache){
     	m_timeOver = false;
     	m_krislet = krislet;
+        m_commands = new CommandQueue(krislet);
     	m_memory = new Memory();
     	m_team = team;
     	m_side = side;
     	m_agent_asl = agent_asl;
     	m_playMode = playMode;
-    	start();
-        perceptions = new LinkedList<Belief>();
+        perceptions = BeliefSet.EMPTY;
+        m_previousPerceptions = BeliefSet.EMPTY;
         environmentObjects = new ObjectInfo[7];
+        m_asyncDeliberation = asyncDeliberation;
+        m_scheduler = scheduler;
+        m_perceptionHandoff = new Handoff();
+        m_intentHandoff = new Handoff();
+        m_compiledEngine = compiledEngine;
+        m_recordFile = recordFile;
+        m_decisionCache = decisionCache;
+        // A platform or virtual thread, as chosen with PlayerThreads
+        PlayerThreads.start(this, "brain-" + team);
     }
 
     /**
@@ -77,16 +146,26 @@ class Brain extends Thread implements SensorInput
      * @details getPerceptions takes the current environment state percieved by the player
      * and stored in m_memory and returns a list of descritized perceptions that
      * the agent will have about the current environment.
-     * @return List of Beliefs to add to the agents belief base.
+     * @return BeliefSet of the Beliefs to add to the agents belief base.
      */
-    public List<Belief> getPerceptions() {
+    public long getPerceptions() {
+        // Take one frame and read everything from it, so the beliefs of this
+        // cycle all come from the same see message.
+        VisualInfo frame = m_memory.getFrame();
+        m_decisions++;
+        if (frame == m_frame) {
+            m_staleDecisions++;
+        }
+        m_frame = frame;
+        Arrays.fill(this.environmentObjects, null);
+
         //Memory objects that will be used to identify if percepts are in the players memory.
-        BallInfo ball = (BallInfo) m_memory.getObject("ball");
+        BallInfo ball = (BallInfo) frame.getObject(Landmark.BALL);
 
         GoalInfo ownGoal;
         GoalInfo opposingGoal;
         LineInfo ownSideLine;
-        FlagInfo centre_c = (FlagInfo) m_memory.getObject("flag c");
+        FlagInfo centre_c = (FlagInfo) frame.getObject(Landmark.FLAG_C);
         FlagInfo ownPenalty_c;
 
         /*
@@ -97,15 +176,15 @@ class Brain extends Thread implements SensorInput
 
         //Determine which side the player is on then initialise the memory objects accordingly.
         if(this.m_side == 'r'){
-            ownGoal = (GoalInfo) m_memory.getObject("goal r");
-            opposingGoal = (GoalInfo) m_memory.getObject("goal l");
-            ownPenalty_c = (FlagInfo) m_memory.getObject("flag p r c");
-            ownSideLine = (LineInfo) m_memory.getObject("line r");
+            ownGoal = (GoalInfo) frame.getObject(Landmark.GOAL_R);
+            opposingGoal = (GoalInfo) frame.getObject(Landmark.GOAL_L);
+            ownPenalty_c = (FlagInfo) frame.getObject(Landmark.FLAG_P_R_C);
+            ownSideLine = (LineInfo) frame.getObject(Landmark.LINE_R);
         }else{
-            ownGoal = (GoalInfo) m_memory.getObject("goal l");
-            opposingGoal = (GoalInfo) m_memory.getObject("goal r");
-            ownPenalty_c = (FlagInfo) m_memory.getObject("flag p l c");
-            ownSideLine = (LineInfo) m_memory.getObject("line l");
+            ownGoal = (GoalInfo) frame.getObject(Landmark.GOAL_L);
+            opposingGoal = (GoalInfo) frame.getObject(Landmark.GOAL_R);
+            ownPenalty_c = (FlagInfo) frame.getObject(Landmark.FLAG_P_L_C);
+            ownSideLine = (LineInfo) frame.getObject(Landmark.LINE_L);
         }
 
         // store the object to act on when performing an action
@@ -117,60 +196,60 @@ class Brain extends Thread implements SensorInput
 
 
 
-		List<ObjectInfo> players = m_memory.getObjects("player");
+		List<PlayerInfo> players = frame.getPlayerList();
         // Reset the current perceptions seen in the enviroment
-        List<Belief> currentPerceptions = new LinkedList<Belief>();
+        long currentPerceptions = BeliefSet.EMPTY;
 
         // Descritizing code goes here to translate the current Environment state
         // into a list of Perceptions for the agent to add to it's belief base.
 
         //Add beliefs about the ball.
         if( ball != null ) {
-            currentPerceptions.add(Belief.BALL_SEEN);
+            currentPerceptions |= Belief.BALL_SEEN.mask;
             if( ball.m_distance < 0.75) {
-                currentPerceptions.add(Belief.AT_BALL);
+                currentPerceptions |= Belief.AT_BALL.mask;
             }
 
             if(Math.abs(ball.m_direction) < 10) {
-                currentPerceptions.add(Belief.FACING_BALL);
+                currentPerceptions |= Belief.FACING_BALL.mask;
             }
 
             if(ball.m_direction < 0) {
-                currentPerceptions.add(Belief.BALL_TO_LEFT);
+                currentPerceptions |= Belief.BALL_TO_LEFT.mask;
             } else {
-                currentPerceptions.add(Belief.BALL_TO_RIGHT);
+                currentPerceptions |= Belief.BALL_TO_RIGHT.mask;
             }
 
             // TODO: Check to see if you're a goalie
             if(ball.m_distance < 15){
-                currentPerceptions.add(Belief.BALL_MED_DIST_FROM_GOALIE);
+                currentPerceptions |= Belief.BALL_MED_DIST_FROM_GOALIE.mask;
             }
         }
 
         //Add beliefs about the players own goal line.
         if(ownSideLine != null){
-            currentPerceptions.add(Belief.OWN_GOAL_LINE_SEEN);
+            currentPerceptions |= Belief.OWN_GOAL_LINE_SEEN.mask;
             if(ownSideLine.m_distance < 10){
-                currentPerceptions.add(Belief.CLOSE_TO_OWN_GOAL_LINE);
+                currentPerceptions |= Belief.CLOSE_TO_OWN_GOAL_LINE.mask;
             }
 
         }
 
         //Add beliefs about the center of the pitch.
         if(centre_c != null){
-            currentPerceptions.add(Belief.CENTRE_SEEN);
+            currentPerceptions |= Belief.CENTRE_SEEN.mask;
             if(Math.abs(centre_c.m_direction) < 10) {
-                currentPerceptions.add(Belief.FACING_CENTRE);
+                currentPerceptions |= Belief.FACING_CENTRE.mask;
             }
 
             if(centre_c.m_direction < 0) {
-                currentPerceptions.add(Belief.CENTRE_TO_LEFT);
+                currentPerceptions |= Belief.CENTRE_TO_LEFT.mask;
             }else{
-                currentPerceptions.add(Belief.CENTRE_TO_RIGHT);
+                currentPerceptions |= Belief.CENTRE_TO_RIGHT.mask;
             }
 
             if(centre_c.m_distance < 3){
-                currentPerceptions.add(Belief.CLOSE_TO_CENTRE);
+                currentPerceptions |= Belief.CLOSE_TO_CENTRE.mask;
             }
         }
 
@@ -178,53 +257,53 @@ class Brain extends Thread implements SensorInput
         if(ownGoal == null && opposingGoal == null){ }
         else{
             if(ownGoal != null){
-                currentPerceptions.add(Belief.OWN_GOAL_SEEN);
+                currentPerceptions |= Belief.OWN_GOAL_SEEN.mask;
                 if(ownGoal.m_distance < 50.0) {
-                    currentPerceptions.add(Belief.ON_OWN_SIDE);
+                    currentPerceptions |= Belief.ON_OWN_SIDE.mask;
                 }
                 if( ownGoal.m_distance < 2) {
-                    currentPerceptions.add(Belief.AT_OWN_NET);
+                    currentPerceptions |= Belief.AT_OWN_NET.mask;
                 }
                 if(Math.abs(ownGoal.m_direction) < 10) {
-                    currentPerceptions.add(Belief.FACING_OWN_GOAL);
+                    currentPerceptions |= Belief.FACING_OWN_GOAL.mask;
                 }
             }
 
             if(opposingGoal != null){
-                currentPerceptions.add(Belief.ENEMY_GOAL_SEEN);
+                currentPerceptions |= Belief.ENEMY_GOAL_SEEN.mask;
                 if(opposingGoal.m_distance > 75.0) {
-                    currentPerceptions.add(Belief.ON_OWN_SIDE);
+                    currentPerceptions |= Belief.ON_OWN_SIDE.mask;
                 }
                 if( opposingGoal.m_distance < 0.75) {
-                    currentPerceptions.add(Belief.AT_OPPOSING_NET);
+                    currentPerceptions |= Belief.AT_OPPOSING_NET.mask;
                 }
                 if(Math.abs(opposingGoal.m_direction) < 10) {
-                    currentPerceptions.add(Belief.FACING_OPPOSING_GOAL);
+                    currentPerceptions |= Belief.FACING_OPPOSING_GOAL.mask;
                 }
 
                 if(opposingGoal.m_direction < 0) {
-                    currentPerceptions.add(Belief.ENEMY_GOAL_TO_LEFT);
+                    currentPerceptions |= Belief.ENEMY_GOAL_TO_LEFT.mask;
                 }else{
-                    currentPerceptions.add(Belief.ENEMY_GOAL_TO_RIGHT);
+                    currentPerceptions |= Belief.ENEMY_GOAL_TO_RIGHT.mask;
                 }
             }
         }
 
         //Add beliefs about the players own penalty box and the players position relative to it.
         if(ownPenalty_c != null){
-            currentPerceptions.add(Belief.OWN_PENALTY_SEEN);
+            currentPerceptions |= Belief.OWN_PENALTY_SEEN.mask;
             if(Math.abs(ownPenalty_c.getDirection()) < 10) {
-                currentPerceptions.add(Belief.FACING_OWN_PENALTY);
+                currentPerceptions |= Belief.FACING_OWN_PENALTY.mask;
             }
 
             if(ownPenalty_c.getDirection() < 0) {
-                currentPerceptions.add(Belief.OWN_PENALTY_TO_LEFT);
+                currentPerceptions |= Belief.OWN_PENALTY_TO_LEFT.mask;
             }else{
-                currentPerceptions.add(Belief.OWN_PENALTY_TO_RIGHT);
+                currentPerceptions |= Belief.OWN_PENALTY_TO_RIGHT.mask;
             }
 
             if(ownPenalty_c.getDistance() < 3){
-                currentPerceptions.add(Belief.CLOSE_TO_OWN_PENALTY);
+                currentPerceptions |= Belief.CLOSE_TO_OWN_PENALTY.mask;
             }
         }
 
@@ -234,18 +313,18 @@ class Brain extends Thread implements SensorInput
             double angle_rads = (Math.abs(ball.m_direction - ownGoal.m_direction) * Math.PI) / 180.0;
             double distance = getDistance(ball.m_distance,ownGoal.m_distance,angle_rads);
             if (distance < 50.0) {
-                currentPerceptions.add(Belief.BALL_ON_OWN_SIDE);
+                currentPerceptions |= Belief.BALL_ON_OWN_SIDE.mask;
             } else {
-                currentPerceptions.add(Belief.BALL_ON_ENEMY_SIDE);
+                currentPerceptions |= Belief.BALL_ON_ENEMY_SIDE.mask;
             }
         }else if (ball != null && opposingGoal != null) {
             // using Law of Cosines to find distance c^2 = a^2 + b^2 - 2abcos(theta)
             double angle_rads = (Math.abs(ball.m_direction - opposingGoal.m_direction) * Math.PI) / 180.0;
             double distance = getDistance(ball.m_distance,opposingGoal.m_distance,angle_rads);
             if (distance > 60.0) {
-                currentPerceptions.add(Belief.BALL_ON_OWN_SIDE);
+                currentPerceptions |= Belief.BALL_ON_OWN_SIDE.mask;
             } else {
-                currentPerceptions.add(Belief.BALL_ON_ENEMY_SIDE);
+                currentPerceptions |= Belief.BALL_ON_ENEMY_SIDE.mask;
             }
         }
 
@@ -255,12 +334,11 @@ class Brain extends Thread implements SensorInput
                 double ballDistance = ball.getDistance();
                 double ballDirection = ball.getDirection();
                 double shorterBallDistance = ballDistance + 1;
-                for (ObjectInfo currentPlayer : players) {
-                    PlayerInfo player = (PlayerInfo) currentPlayer;
+                for (PlayerInfo player : players) {
 
                     if(player.m_teamName.equals(m_team)){ // if player is a teammate
-                        if(!currentPerceptions.contains(Belief.TEAMMATE_AVAILABLE)){
-                            currentPerceptions.add(Belief.TEAMMATE_AVAILABLE);
+                        if(!BeliefSet.contains(currentPerceptions, Belief.TEAMMATE_AVAILABLE)){
+                            currentPerceptions |= Belief.TEAMMATE_AVAILABLE.mask;
                             this.environmentObjects[3] = player;
                         }
                         // using Law of Cosines to find distance c^2 = a^2 + b^2 - 2abcos(theta)
@@ -268,20 +346,20 @@ class Brain extends Thread implements SensorInput
                         double teammateDistance = getDistance(ballDistance,player.m_distance,angle_rads);
                         if(teammateDistance < ballDistance){ // this player is the closest to the ball
                             shorterBallDistance = teammateDistance;
-                            currentPerceptions.add(Belief.TEAMMATE_CLOSER_TO_BALL);
+                            currentPerceptions |= Belief.TEAMMATE_CLOSER_TO_BALL.mask;
                             if(shorterBallDistance < 0.75){
-                                currentPerceptions.add(Belief.TEAMMATE_AT_BALL);
+                                currentPerceptions |= Belief.TEAMMATE_AT_BALL.mask;
                             }
                         }
                     }else{ // if player is on opposing team
                         if(player.m_distance < 1 && ball.m_distance < 0.5){
                             this.environmentObjects[4] = player;
-                            currentPerceptions.add(Belief.ENEMY_AT_BALL);
+                            currentPerceptions |= Belief.ENEMY_AT_BALL.mask;
                         }
                         if(player.m_distance < 10 && opposingGoal != null ){
                             if(Math.abs(opposingGoal.m_direction - player.m_direction) < 3){
                                 this.environmentObjects[4] = player;
-                                currentPerceptions.add(Belief.ENEMY_BLOCKING_SHOT);
+                                currentPerceptions |= Belief.ENEMY_BLOCKING_SHOT.mask;
                             }
                         }
                     }
@@ -299,100 +377,109 @@ class Brain extends Thread implements SensorInput
      * its reasoning cycle.
      */
     public void performIntent(Intent intent) {
+        performIntent(intent, environmentObjects);
+    }
+
+    /**
+     * @brief Sends the action of an intent, acting on the objects of the
+     * frame it was decided on.
+     * @param objects The environmentObjects of that frame.
+     */
+    private void performIntent(Intent intent, ObjectInfo[] objects) {
 
         //Memory objects that the player will need to perform certain actions.
-		BallInfo ball = (BallInfo) environmentObjects[0];
-        GoalInfo ownGoal = (GoalInfo) environmentObjects[1];;
-        GoalInfo opposingGoal = (GoalInfo) environmentObjects[2];;
-        PlayerInfo player = (PlayerInfo) environmentObjects[3];
-        PlayerInfo enemy =  (PlayerInfo) environmentObjects[4];
-        FlagInfo centre = (FlagInfo) environmentObjects[5];
-        FlagInfo ownPenalty = (FlagInfo) environmentObjects[6];
+		BallInfo ball = (BallInfo) objects[0];
+        GoalInfo ownGoal = (GoalInfo) objects[1];;
+        GoalInfo opposingGoal = (GoalInfo) objects[2];;
+        PlayerInfo player = (PlayerInfo) objects[3];
+        PlayerInfo enemy =  (PlayerInfo) objects[4];
+        FlagInfo centre = (FlagInfo) objects[5];
+        FlagInfo ownPenalty = (FlagInfo) objects[6];
 
         try {
             switch(intent){
                 case KICK_AT_NET:
-                    m_krislet.kick(75, opposingGoal.m_direction);
+                    m_commands.kick(75, opposingGoal.m_direction);
                     break;
                 case KICK_TO_PLAYER:
-                    m_krislet.kick(75, player.m_direction);
+                    m_commands.kick(75, player.m_direction);
                     break;
                 case KICK_TO_DEFEND:
-                    m_krislet.kick(75, 180);
+                    m_commands.kick(75, 180);
                     break;
                 case KICK_TO_SIDE:
-                    m_krislet.kick(25, 45);
-                    m_krislet.turn(45);
+                    m_commands.kick(25, 45);
+                    m_commands.turn(45);
                     break;
                 case KICK_STRAIGHT:
-                    m_krislet.kick(50,0);
+                    m_commands.kick(50,0);
                     break;
                 case LOOK_LEFT:
-                    m_krislet.turn(-80);
-                    m_memory.waitForNewInfo();
+                    m_commands.turn(-80);
+                    waitForNewInfo();
                     break;
                 case LOOK_RIGHT:
-                    m_krislet.turn(80);
-                    m_memory.waitForNewInfo();
+                    m_commands.turn(80);
+                    waitForNewInfo();
                     break;
                 case TURN_TO_BALL:
-                    m_krislet.turn(ball.getDirection());
-                    m_memory.waitForNewInfo();
+                    m_commands.turn(ball.getDirection());
+                    waitForNewInfo();
                     break;
                 case TURN_TO_OWN_GOAL:
-                    m_krislet.turn(ownGoal.getDirection());
+                    m_commands.turn(ownGoal.getDirection());
                     break;
                 case TURN_TO_OPPOSING_GOAL:
-                    m_krislet.turn(opposingGoal.getDirection());
+                    m_commands.turn(opposingGoal.getDirection());
                     break;
                 case TURN_UP_FIELD:
-                    m_krislet.turn(opposingGoal.getDirection() + 9);
+                    m_commands.turn(opposingGoal.getDirection() + 9);
                     break;
                 case TURN_TO_PLAYER:
-                    m_krislet.turn(player.getDirection());
+                    m_commands.turn(player.getDirection());
                     break;
                 case TURN_TO_CENTRE:
-                    m_krislet.turn(centre.getDirection());
+                    m_commands.turn(centre.getDirection());
                     break;
                 case TURN_TO_OWN_PENALTY:
-                    m_krislet.turn(ownPenalty.getDirection());
+                    m_commands.turn(ownPenalty.getDirection());
                     break;
                 case RUN_TO_PLAYER:
-                    m_krislet.dash(100*player.getDistance());
+                    m_commands.dash(100*player.getDistance());
                     break;
                 case RUN_TO_BALL:
                     if(ball.getDistance() > 5){
-                        m_krislet.dash(50);
+                        m_commands.dash(50);
                     }else{
-                        m_krislet.dash(50*ball.getDistance());
+                        m_commands.dash(50*ball.getDistance());
                     }
                     break;
                 case RUN_TO_OWN_GOAL:
-                    m_krislet.dash(100*ownGoal.getDistance());
+                    m_commands.dash(100*ownGoal.getDistance());
                     break;
                 case RUN_TO_OPPOSING_GOAL:
-                    m_krislet.dash(100*opposingGoal.getDistance());
+                    m_commands.dash(100*opposingGoal.getDistance());
                     break;
                 case RUN_TO_CENTRE:
-                    m_krislet.dash(100*centre.getDistance());
+                    m_commands.dash(100*centre.getDistance());
                     break;
                 case RUN_TO_OWN_PENALTY:
-                    m_krislet.dash(100*ownPenalty.getDistance());
+                    m_commands.dash(100*ownPenalty.getDistance());
                     break;
                 case RUN_UP_FIELD:
-                    m_krislet.dash(100*opposingGoal.getDistance());
+                    m_commands.dash(100*opposingGoal.getDistance());
                     break;
                 case WAIT:
-                    m_memory.waitForNewInfo();
+                    waitForNewInfo();
                     break;
                 default:
                 System.out.printf("UNKNOWN INTENT (%s) - WAITING", intent);
-                    m_memory.waitForNewInfo();
+                    waitForNewInfo();
                     break;
             }
         } catch (Exception e) {
             System.out.printf("INTENT FAILED (%s)", intent);
-            m_memory.waitForNewInfo();
+            waitForNewInfo();
         }
     }
 
@@ -407,7 +494,21 @@ class Brain extends Thread implements SensorInput
     public void run()
     {
         // Establish Agent
-        JasonAgent agent = new JasonAgent(this.m_agent_asl);
+        DecisionEngine agent = m_compiledEngine ? CompiledAgent.forFile(m_agent_asl) : null;
+        if (agent == null) {
+            JasonAgent jason = new JasonAgent(m_agent_asl);
+            jason.setDecisionCache(m_decisionCache);
+            agent = jason;
+        }
+        if (m_recordFile != null) {
+            try {
+                m_record = new PrintWriter(new BufferedWriter(new FileWriter(m_recordFile)));
+            } catch (IOException e) {
+                System.out.println("Cannot record to " + m_recordFile + ": " + e);
+            }
+        }
+        m_agent = agent;
+        m_agentLoaded = true;
         System.out.println("BDI Agent Loaded: Begining new game of RoboCup");
 
 
@@ -415,33 +516,293 @@ class Brain extends Thread implements SensorInput
     	if(Pattern.matches("^before_kick_off.*",m_playMode))
     	   move();
 
+        // In synchronous mode the server waits for (done), so there is no
+        // deadline to decide by: reason in line, and only the reasoning
+        // cycle limit bounds a decision.
+        if (m_scheduler.isSynchronous()) {
+            m_asyncDeliberation = false;
+            agent.setDecisionBudget(DecisionEngine.NO_DECISION_BUDGET);
+        }
+
+        if (m_asyncDeliberation) {
+            DecisionEngine engine = agent;
+            PlayerThreads.start(() -> deliberate(engine), "brain-" + m_team + "-deliberation", true);
+        }
+
     	while( !m_timeOver ){
-    		// sleep one step to ensure that we will not send
-    		// two commands in one cycle.
-    		try{
-    		    Thread.sleep(1*SoccerParams.simulator_step);
-    		}catch(Exception e){
-    	    }
+    		// wait for the next server cycle to ensure that we will not
+    		// send two commands in one cycle.
+    		if (m_scheduler.awaitNextCycle() < 0 && m_scheduler.isSynchronous())
+    		    continue;
 
             // Get current perceptions
+            long start = System.nanoTime();
+            m_previousPerceptions = perceptions;
             perceptions = this.getPerceptions();
+            long perceived = System.nanoTime();
+            long arrival = m_frame.getArrival();
+
+            // The commands an intent could not send in its own cycle go out
+            // one per cycle before the next decision, unless a perception
+            // the decision that chose them depended on has changed since
+            m_commands.startCycle();
+            if (m_commands.hasQueued()) {
+                if (((perceptions ^ m_queuedPerceptions) & m_queuedRelevance) == 0 && m_commands.sendQueued()) {
+                    recordLatency(start, perceived, false, perceived, arrival);
+                    if (m_scheduler.isSynchronous()) {
+                        m_krislet.done();
+                    }
+                    continue;
+                }
+                m_commands.dropQueued();
+            }
 
             //for (ObjectInfo currentPlayer : players) {
             // Get an intent from the Jason Agent based on this cycles new
             // current perceptions so we can perform an action
             //System.out.println("Starting Reasoning:");
-            //System.out.println(perceptions.toString());
-            Intent intent = agent.getIntent(perceptions);
+            //System.out.println(BeliefSet.toString(perceptions));
+            Intent intent;
+            ObjectInfo[] objects = environmentObjects;
+            long decidedOn = perceptions;
+            if (m_asyncDeliberation) {
+                long decision = exchange(perceptions);
+                if (decision == Handoff.EMPTY) {
+                    // Nothing new to do: no body command this cycle
+                    recordLatency(start, perceived, true, System.nanoTime(), arrival);
+                    continue;
+                }
+                int frame = (int)((decision >>> INTENT_BITS) % FRAMES);
+                intent = INTENTS[(int)(decision & ((1 << INTENT_BITS) - 1))];
+                objects = m_frameObjects[frame];
+                decidedOn = m_framePerceptions[frame];
+            } else {
+                intent = decide(agent, perceptions);
+            }
+            long decided = System.nanoTime();
 
             //System.out.println("Got Intent:");
             //System.out.println(intent.toString());
             // Perform the action
-            this.performIntent(intent);
+            this.performIntent(intent, objects);
+            m_queuedPerceptions = decidedOn;
+            // The deliberation thread's last decision need not be the one
+            // whose intent was performed
+            m_queuedRelevance = m_asyncDeliberation ? BeliefSet.ALL : agent.getRelevantBeliefs();
+
+            recordLatency(start, perceived, true, decided, arrival);
+            if (m_scheduler.isSynchronous()) {
+                m_krislet.done();
+            }
         }
 
+        System.out.println("Decisions: " + agent.getDecisionCount()
+                           + ", most reasoning cycles: " + agent.getMostDecisionCycles()
+                           + ", out of time: " + agent.getOverrunCount()
+                           + ", at cycle limit: " + agent.getCycleLimitCount());
+        if (agent instanceof JasonAgent) {
+            JasonAgent jason = (JasonAgent)agent;
+            System.out.println("Decisions reasoned: " + jason.getReasonedDecisionCount()
+                               + ", skipped as nothing relevant changed: " + jason.getSkippedDecisionCount());
+            System.out.printf("Beliefs changed: %d, per decision: %.2f, full belief updates: %d%n",
+                              jason.getTotalBeliefChangeCount(),
+                              (double)jason.getTotalBeliefChangeCount() / Math.max(1, agent.getDecisionCount()),
+                              jason.getFullBeliefUpdateCount());
+            DecisionCache cache = jason.getDecisionCache();
+            if (cache != null) {
+                System.out.println("Decision cache hits: " + cache.getHitCount()
+                                   + ", misses: " + cache.getMissCount()
+                                   + ", not cacheable: " + cache.getBypassCount());
+            }
+        }
+        System.out.println("Commands held for a later cycle: " + m_commands.getDeferredCount()
+                           + ", sent later: " + m_commands.getSentLaterCount()
+                           + ", dropped: " + m_commands.getDroppedCount()
+                           + ", turns merged: " + m_commands.getCoalescedCount());
+        System.out.printf("Commands per cycle: %.2f, extra commands: %d, cycles without a command: %d, late wakeups: %d%n",
+                          m_scheduler.getCommandsPerCycle(), m_scheduler.getExtraCommandCount(),
+                          m_scheduler.getMissedCycleCount(), m_scheduler.getLateWakeupCount());
+        System.out.println("As the server saw it, idle cycles: " + m_scheduler.getIdleCycleCount()
+                           + ", dropped commands: " + m_scheduler.getDuplicateCommandCount()
+                           + ", late commands: " + m_scheduler.getLateCommandCount());
+        if (m_asyncDeliberation) {
+            System.out.println("Cycles without a new intent: " + m_staleIntents
+                               + ", intents too old to perform: " + m_expiredIntents
+                               + ", overwritten intents: " + m_overwrittenIntents
+                               + ", overwritten perceptions: " + m_overwrittenPerceptions);
+        }
+        System.out.println(m_latency.report());
+        if (m_record != null) {
+            m_record.close();
+        }
     	m_krislet.bye();
     }
 
+    /**
+     * @brief Records how long the stages of a cycle took.
+     * @details A cycle that sent a queued command decided nothing: its
+     * command is sent straight after perceiving, so decided is the time it
+     * perceived and no DECIDE time is recorded.
+     */
+    private void recordLatency(long start, long perceived, boolean reasoned, long decided, long arrival) {
+        m_latency.record(LatencyStats.Stage.PERCEIVE, perceived - start);
+        if (reasoned) {
+            m_latency.record(LatencyStats.Stage.DECIDE, decided - perceived);
+        }
+        long sent = m_commands.getLastSendTime();
+        if (sent >= decided) {
+            m_latency.record(LatencyStats.Stage.SEND, sent - decided);
+        }
+        if (arrival != 0) {
+            m_latency.record(LatencyStats.Stage.FRAME_AGE, start - arrival);
+            if (sent >= decided) {
+                m_latency.record(LatencyStats.Stage.END_TO_END, sent - arrival);
+            }
+        }
+    }
+
+    /**
+     * @brief Gets an intent from the agent, recording the perceptions it is
+     * based on if asked to.
+     */
+    private Intent decide(DecisionEngine agent, long perceptions) {
+        if (m_record != null) {
+            m_recordLine.setLength(0);
+            m_record.append(BeliefSet.appendTo(m_recordLine, perceptions)).println();
+        }
+        return agent.getIntent(perceptions);
+    }
+
+    /**
+     * @brief Waits for the see information that shows the effect of a turn.
+     * @details In synchronous mode the server sends it only after (done),
+     * together with the next (think), so there is nothing to wait for.
+     * The wait is bounded, as no see information comes once the game is over
+     * and the brain still has to leave it.
+     */
+    private void waitForNewInfo() {
+        if (!m_scheduler.isSynchronous()) {
+            m_memory.waitForNewInfo(SEE_TIMEOUT);
+        }
+    }
+
+    /**
+     * @brief Hands this cycle's frame to the deliberation thread and returns
+     * the freshest decision it has produced.
+     * @details Waits up to the decision budget for a new decision. One that
+     * arrives too late is used in a later cycle unless a newer one replaces
+     * it first, or its frame is no longer kept.
+     * @return The number of the frame the decision was made on, shifted by
+     * INTENT_BITS, and the ordinal of its intent, or Handoff.EMPTY if there
+     * is no decision to perform.
+     */
+    private long exchange(long perceptions) {
+        m_frameNumber++;
+        int frame = (int)(m_frameNumber % FRAMES);
+        m_framePerceptions[frame] = perceptions;
+        System.arraycopy(environmentObjects, 0, m_frameObjects[frame], 0, environmentObjects.length);
+        if (m_perceptionHandoff.put(m_frameNumber)) {
+            m_overwrittenPerceptions++;
+        }
+        long decision = m_intentHandoff.take(System.nanoTime() + SoccerParams.decision_budget * 1000000L);
+        if (decision == Handoff.EMPTY) {
+            m_staleIntents++;
+        } else if (m_frameNumber - (decision >>> INTENT_BITS) >= FRAMES) {
+            // Its objects have been overwritten by newer frames'
+            m_expiredIntents++;
+            m_staleIntents++;
+            decision = Handoff.EMPTY;
+        }
+        return decision;
+    }
+
+    /**
+     * @brief Body of the deliberation thread: reasons about the latest
+     * frame's perceptions whenever there is a new one.
+     * @details A frame that is overwritten while this thread reads its
+     * perceptions is one the brain no longer keeps, so the decision made on
+     * it is dropped.
+     */
+    private void deliberate(DecisionEngine agent) {
+        while (!m_timeOver) {
+            long frame = m_perceptionHandoff.take(System.nanoTime() + SoccerParams.simulator_step * 1000000L);
+            if (frame == Handoff.EMPTY) {
+                continue;
+            }
+            Intent intent = decide(agent, m_framePerceptions[(int)(frame % FRAMES)]);
+            if (m_intentHandoff.put(frame << INTENT_BITS | intent.ordinal())) {
+                m_overwrittenIntents++;
+            }
+        }
+    }
+
+    /**
+     * @brief Ends the game for this player before time_over: the brain
+     * leaves its loop, reports and says bye as it does at time_over.
+     */
+    public void stop() {
+        m_timeOver = true;
+    }
+
+    /**
+     * @brief The current play mode, as last announced by the referee.
+     */
+    public String getPlayMode() {
+        return m_playMode;
+    }
+
+    /**
+     * @brief The engine that decides for the player, or null until it has
+     * been loaded.
+     */
+    public DecisionEngine getDecisionEngine() {
+        return m_agent;
+    }
+
+    public Memory getMemory() {
+        return m_memory;
+    }
+
+    /**
+     * @brief Latency histograms of this player's stages, which may be read
+     * while it plays.
+     */
+    public LatencyStats getLatencyStats() {
+        return m_latency;
+    }
+
+    /**
+     * @brief Number of cycles that sent no body command because deliberation
+     * had not produced a new intent by the deadline, or only one decided on a
+     * frame that is no longer kept.
+     */
+    public long getStaleIntentCount() {
+        return m_staleIntents;
+    }
+
+    /**
+     * @brief Number of intents dropped because the frame they were decided
+     * on is no longer kept.
+     */
+    public long getExpiredIntentCount() {
+        return m_expiredIntents;
+    }
+
+    /**
+     * @brief Number of intents replaced by a newer one before being performed.
+     */
+    public long getOverwrittenIntentCount() {
+        return m_overwrittenIntents;
+    }
+
+    /**
+     * @brief Number of perceptions replaced by newer ones before deliberation
+     * started on them.
+     */
+    public long getOverwrittenPerceptionCount() {
+        return m_overwrittenPerceptions;
+    }
+
     /**
      * @brief Operation move determines the movement speed for each type of
      * agent then performs the move action.
@@ -453,7 +814,7 @@ class Brain extends Thread implements SensorInput
             m_krislet.move( -51 , 0 );
         }else if(m_agent_asl.equals("AgentSpecifications/midfielder.asl")){
             m_krislet.move( -15 , 0);
-        }else if(m_agent_asl.equals("AgentSpecifications/attacker.asl")){
+        }else if(m_agent_asl.equalsIgnoreCase("AgentSpecifications/Attacker.asl")){
             m_krislet.move( -5 , Math.random() * 10 - 5);
         }else{
             m_krislet.move( -Math.random()*20.5 , Math.random()*30.0 );
@@ -467,6 +828,52 @@ class Brain extends Thread implements SensorInput
         return Math.sqrt(Math.pow(a, 2) + Math.pow(b, 2) - (2.0 * a * b * Math.cos(theta)));
     }
 
+    /**
+     * @brief Server time of the see message the current decision is based on.
+     * @return The simulation cycle of the frame, or -1 before the first decision.
+     */
+    public int getFrameTime() {
+        VisualInfo frame = m_frame;
+        return frame == null ? -1 : frame.getTime();
+    }
+
+    /**
+     * @brief BeliefSet of the current cycle's perceptions.
+     */
+    public long getCurrentPerceptions() {
+        return perceptions;
+    }
+
+    /**
+     * @brief BeliefSet of the beliefs that changed (were gained or lost)
+     * between the previous cycle and the current one.
+     */
+    public long getPerceptionChanges() {
+        return perceptions ^ m_previousPerceptions;
+    }
+
+    /**
+     * @brief True once the JasonAgent has loaded its ASL file.
+     */
+    public boolean isAgentLoaded() {
+        return m_agentLoaded;
+    }
+
+    /**
+     * @brief Number of decisions made so far.
+     */
+    public long getDecisionCount() {
+        return m_decisions;
+    }
+
+    /**
+     * @brief Number of decisions made on a frame that an earlier decision had
+     * already used, i.e. without new see information in between.
+     */
+    public long getStaleDecisionCount() {
+        return m_staleDecisions;
+    }
+
 
     //===========================================================================
     // Here are suporting functions for implement logic
@@ -480,6 +887,8 @@ class Brain extends Thread implements SensorInput
     public void see(VisualInfo info)
     {
 	m_memory.store(info);
+	if(info.getArrival() != 0)
+	    m_latency.record(LatencyStats.Stage.PARSE, System.nanoTime() - info.getArrival());
     }
 
 
@@ -496,5 +905,6 @@ class Brain extends Thread implements SensorInput
         if(message.compareTo("time_over") == 0){
             m_timeOver = true;
         }
+        m_playMode = message;
     }
 }
@@ -0,0 +1,612 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+*   Checks that the faster or leaner paths of the player behave as the code
+*   they replaced or stand in for:
+*   SeeParser against the regex parser, PerceptionAgent against Agent.buf,
+*   the compiled engines, change-driven reasoning and the decision cache
+*   against Jason reasoning every cycle, and LatencyHistogram against exact
+*   percentiles. It also checks the idle, dropped and late commands
+*   CycleScheduler counts from sense_body messages, and that CommandEncoder
+*   keeps an over-long say, and any number after it, within its buffer.
+*   Benchmarks times the same paths.
+*
+*   Run with: java -cp .;jason-2.3.jar Checks [name] [trace files]
+*   where name is one of the checks below (default: all of them). Every
+*   difference found is printed, and the exit status is 1 if there was any.
+*
+*   The checks run on what a player received and perceived in games kept in
+*   Recordings/: see.txt has see messages as the server sent them, one per
+*   line, and each role's .trace file the perceptions its player decided on,
+*   as Krislet -record writes them. Decisions are also checked on a random
+*   trace, which reaches states no game did.
+*/
+class Checks
+{
+    // See messages with the less common forms: unnamed and close objects,
+    // goalies, exponents, and a message that sees nothing
+    static final String[] SEE_SAMPLES = {
+	"(see 0 ((f r t) 55.7 3) ((f g r b) 70.8 38) ((g r) 66.7 34) ((f g r t) 62.8 28) ((f p r c) 53.5 43) ((f p r t) 42.5 23) ((f t 0) 3.6 -34 0 0) ((f t r 10) 13.2 -9 0 0) ((f t r 20) 23.1 -5 0 0) ((f t r 30) 33.1 -3 0 0) ((f t r 40) 42.9 -3) ((f t r 50) 53 -2) ((f r 0) 70.8 33) ((f r t 10) 66 25) ((f r t 20) 62.8 17) ((f r t 30) 60.9 9) ((f r b 10) 75.9 40) ((b) 49.4 37) ((l t) 3.7 -77))",
+	"(see 57 ((f c) 10.5 5 -0.21 0.3) ((f c t) 40.4 -70) ((f p l c) 30 -12 0 0) ((f p l t) 36.6 -41) ((f p l b) 38.5 24) ((f g l t) 47.5 -15) ((f g l b) 48.4 1) ((g l) 47.5 -7) ((l l) 46.5 -87) ((b) 3.2 -20 -0.064 0.4) ((p \"BDI\" 2) 8.2 10 0 0 -45 -45) ((p \"Krislet3\" 1 goalie) 12.2 -3 0.244 -0.3 170 170) ((p \"BDI\") 30 4) ((P) 2 120) ((F) 4.1 -140) ((B) 1.1 179) ((G) 60.3 -90))",
+	"(see 123 ((f b 0) 18.2 80) ((f b l 10) 20.1 51) ((f b l 20) 23.8 28) ((f b l 30) 28.8 12) ((f b r 10) 20.5 -88) ((f l b 10) 60.3 2) ((f l b 20) 58 -4) ((f l b 30) 55.7 -10) ((f l 0) 62.2 9) ((l b) 18.2 -89) ((p \"Krislet3\" 7) 16.4 -5 -0.328 0.1 -30 0))",
+	"(see 2999 ((l r) 20 -80) ((f r b) 1e-05 3e+01) ((b) 0.05 -0.0 0 0))",
+	"(see 301 )",
+    };
+
+    static final String SEE_CORPUS = "Recordings/see.txt";
+
+    private static final String[] ROLES = {"goalie", "defender", "midfielder", "Attacker"};
+
+    private static int s_failures;
+
+    public static void main(String a[])
+	throws IOException
+    {
+	String name = a.length > 0 ? a[0] : "all";
+	String[] traceFiles = Arrays.copyOfRange(a, Math.min(1, a.length), a.length);
+	if(name.equals("all") || name.equals("see"))
+	    see();
+	if(name.equals("all") || name.equals("beliefs"))
+	    beliefs("AgentSpecifications/midfielder.asl");
+	if(name.equals("all") || name.equals("engines"))
+	    engines(readTraces(traceFiles));
+	if(name.equals("all") || name.equals("deliberation"))
+	    deliberation(readTraces(traceFiles));
+	if(name.equals("all") || name.equals("cache"))
+	    cache(readTraces(traceFiles));
+	if(name.equals("all") || name.equals("latency"))
+	    latency();
+	if(name.equals("all") || name.equals("scheduler"))
+	    scheduler();
+	if(name.equals("all") || name.equals("encoder"))
+	    encoder();
+
+	System.out.println(s_failures == 0 ? "All checks passed" : s_failures + " checks failed");
+	// Jason leaves non-daemon threads running
+	System.exit(s_failures == 0 ? 0 : 1);
+    }
+
+    //---------------------------------------------------------------------------
+    // Checks that SeeParser and the original regex parser read the same
+    // objects from each recorded see message and sample
+    private static void see()
+	throws IOException
+    {
+	List<String> corpus = readSeeCorpus(SEE_CORPUS);
+	corpus.addAll(Arrays.asList(SEE_SAMPLES));
+	int mismatches = 0;
+	for(String message : corpus)
+	    {
+		VisualInfo tokenized = new VisualInfo(message);
+		VisualInfo reference = new VisualInfo(message);
+		tokenized.parse();
+		reference.parseWithRegex();
+		String difference = compare(tokenized, reference);
+		if(difference != null)
+		    {
+			mismatches ++;
+			fail("see", difference + " in " + message);
+		    }
+	    }
+	if(mismatches == 0)
+	    pass("see", corpus.size() + " messages parsed alike");
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns a description of the first difference between the
+    // two parsed messages, or null if they describe the same objects
+    private static String compare(VisualInfo a, VisualInfo b)
+    {
+	if(a.getTime() != b.getTime())
+	    return "time " + a.getTime() + " != " + b.getTime();
+	if(a.m_objects.size() != b.m_objects.size())
+	    return "object count " + a.m_objects.size() + " != " + b.m_objects.size();
+	for(int c = 0 ; c < a.m_objects.size() ; c ++)
+	    {
+		String x = describe(a.m_objects.elementAt(c));
+		String y = describe(b.m_objects.elementAt(c));
+		if(!x.equals(y))
+		    return x + " != " + y;
+	    }
+	return null;
+    }
+
+    private static String describe(ObjectInfo o)
+    {
+	String s = o.getClass().getName() + "[" + o.m_type + " " + o.m_distance + " "
+	    + o.m_direction + " " + o.m_distChange + " " + o.m_dirChange;
+	if(o instanceof PlayerInfo)
+	    {
+		PlayerInfo p = (PlayerInfo)o;
+		s += " " + p.m_teamName + " " + p.m_uniformName + " " + p.m_goalie
+		    + " " + p.m_bodyDir + " " + p.m_headDir;
+	    }
+	else if(o instanceof FlagInfo)
+	    {
+		FlagInfo f = (FlagInfo)o;
+		s += " '" + f.m_type + f.m_pos1 + f.m_pos2 + "' " + f.m_num + " " + f.m_out;
+	    }
+	else if(o instanceof GoalInfo)
+	    s += " " + ((GoalInfo)o).getSide();
+	else if(o instanceof LineInfo)
+	    s += " " + ((LineInfo)o).m_kind;
+	return s + "]";
+    }
+
+    //---------------------------------------------------------------------------
+    // Feeds the same sequence of cycles, each changing one or two beliefs, to
+    // Jason's default belief update and to PerceptionAgent's, and checks that
+    // both leave the same percepts and events behind
+    private static void beliefs(String asl)
+    {
+	JasonAgent source = new JasonAgent(asl);
+	jason.asSemantics.Agent full = createAgent(new jason.asSemantics.Agent(), asl);
+	PerceptionAgent delta = (PerceptionAgent)createAgent(new PerceptionAgent(), asl);
+
+	long[] cycles = randomTrace(new Random(1), 4096);
+	for(int i = 0 ; i < cycles.length ; i ++)
+	    {
+		source.cyclePerceptions = cycles[i];
+		List<jason.asSyntax.Literal> percepts = source.perceive();
+		int fullChanges = full.buf(percepts);
+		// Given the set, as JasonAgent does
+		delta.setPerceptions(cycles[i]);
+		int deltaChanges = delta.buf(percepts);
+		String expected = fullChanges + " " + beliefState(full);
+		String actual = deltaChanges + " " + beliefState(delta);
+		if(!expected.equals(actual))
+		    {
+			fail("beliefs", "cycle " + i + " differs:\n  buf   " + expected
+			     + "\n  delta " + actual);
+			return;
+		    }
+	    }
+	pass("beliefs", cycles.length + " cycles updated alike");
+    }
+
+    static jason.asSemantics.Agent createAgent(jason.asSemantics.Agent agent, String asl)
+    {
+	new jason.asSemantics.TransitionSystem(agent, new jason.asSemantics.Circumstance(),
+					       new jason.runtime.Settings(),
+					       new jason.architecture.AgArch());
+	try{
+	    agent.initAg(asl);
+	}catch(jason.JasonException e){
+	    throw new IllegalStateException(e);
+	}
+	return agent;
+    }
+
+    private static String beliefState(jason.asSemantics.Agent agent)
+    {
+	List<String> percepts = new ArrayList<String>();
+	for(Iterator<jason.asSyntax.Literal> i = agent.getBB().getPercepts() ; i.hasNext() ; )
+	    percepts.add(i.next().toString());
+	Collections.sort(percepts);
+	List<String> events = new ArrayList<String>();
+	for(jason.asSemantics.Event e : agent.getTS().getC().getEvents())
+	    events.add(e.getTrigger().toString());
+	Collections.sort(events);
+	agent.getTS().getC().clearEvents();
+	return percepts + " " + events;
+    }
+
+    //---------------------------------------------------------------------------
+    // Runs JasonAgent and the CompiledAgent of each role file side by side
+    // on each trace, from a fresh start, and checks that they choose the
+    // same intent in the same number of reasoning cycles every cycle
+    private static void engines(Map<String, long[]> traces)
+    {
+	for(String role : ROLES)
+	    {
+		String file = "AgentSpecifications/" + role + ".asl";
+		if(CompiledAgent.forFile(file) == null)
+		    {
+			fail("engines", file + " has no compiled engine, or it is out of date");
+			continue;
+		    }
+		for(Map.Entry<String, long[]> trace : traces.entrySet())
+		    {
+			EnumSet<Intent> intents = EnumSet.noneOf(Intent.class);
+			String difference = compareEngines(file, trace.getValue(),
+							   trace.getKey().equals(recording(role)), intents);
+			if(difference != null)
+			    fail("engines", file + " on " + trace.getKey() + ": " + difference);
+			else
+			    pass("engines", file + " on " + trace.getKey() + ": same intents in "
+				 + trace.getValue().length + " decisions, " + intents.size() + " different ones");
+		    }
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns where the two engines first part on a trace,
+    // or null if they never do, and collects the intents chosen. On the
+    // recording of its own role's game Jason must not stop for want of an
+    // applicable plan, as the engines would only agree on waiting from then.
+    private static String compareEngines(String asl, long[] trace, boolean mustRun, Set<Intent> intents)
+    {
+	// Jason's decision time varies, so only the cycle limit may end one
+	JasonAgent jason = everyCycleAgent(asl);
+	CompiledAgent compiled = CompiledAgent.forFile(asl);
+	compiled.setDecisionBudget(DecisionEngine.NO_DECISION_BUDGET);
+	for(int i = 0 ; i < trace.length ; i ++)
+	    {
+		Intent expected = jason.getIntent(trace[i]);
+		Intent actual = compiled.getIntent(trace[i]);
+		if(expected != actual || jason.getLastDecisionCycles() != compiled.getLastDecisionCycles())
+		    return "decision " + i + " on " + BeliefSet.toString(trace[i])
+			+ ": Jason " + expected + " in " + jason.getLastDecisionCycles() + " cycles, compiled "
+			+ actual + " in " + compiled.getLastDecisionCycles() + " cycles, " + compiled.describe();
+		if(mustRun && stopped(jason))
+		    return "Jason stopped at decision " + i + " on " + BeliefSet.toString(trace[i]);
+		intents.add(expected);
+	    }
+	return null;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function tells whether an agent has nothing left to do: no
+    // intention and no event to start one
+    static boolean stopped(JasonAgent agent)
+    {
+	jason.asSemantics.Circumstance c = agent.getTS().getC();
+	return !c.getAllIntentions().hasNext() && !c.hasEvent();
+    }
+
+    //---------------------------------------------------------------------------
+    // Runs a JasonAgent that skips decisions when nothing they depend on
+    // has changed beside one that reasons every cycle on each trace, from a
+    // fresh start, and checks that they choose the same intents. Skipping
+    // is only right if IntentionStates finds every perception the plans
+    // test, so on its own role's recording the agent must skip some.
+    private static void deliberation(Map<String, long[]> traces)
+    {
+	for(String role : ROLES)
+	    {
+		String file = "AgentSpecifications/" + role + ".asl";
+		for(Map.Entry<String, long[]> trace : traces.entrySet())
+		    {
+			boolean own = trace.getKey().equals(recording(role));
+			JasonAgent everyCycle = everyCycleAgent(file);
+			JasonAgent changeDriven = new JasonAgent(file);
+			changeDriven.setDecisionBudget(DecisionEngine.NO_DECISION_BUDGET);
+			if(!sameIntents("deliberation", file, trace.getKey(), everyCycle, changeDriven,
+					trace.getValue(), own))
+			    continue;
+			long skipped = changeDriven.getSkippedDecisionCount();
+			if(own && skipped == 0)
+			    fail("deliberation", file + " on " + trace.getKey() + ": no decision was skipped");
+			else
+			    pass("deliberation", file + " on " + trace.getKey() + ": same intents in "
+				 + trace.getValue().length + " decisions, " + skipped + " skipped");
+		    }
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // Runs a JasonAgent with a DecisionCache beside one without on each
+    // trace, from a fresh start, and checks that they choose the same
+    // intents. Neither skips unchanged decisions, which would hide the
+    // cache. On its own role's recording the cache must answer some of them.
+    private static void cache(Map<String, long[]> traces)
+    {
+	for(String role : ROLES)
+	    {
+		String file = "AgentSpecifications/" + role + ".asl";
+		for(Map.Entry<String, long[]> trace : traces.entrySet())
+		    {
+			boolean own = trace.getKey().equals(recording(role));
+			JasonAgent plain = everyCycleAgent(file);
+			JasonAgent cached = everyCycleAgent(file);
+			cached.setDecisionCache(256);
+			if(!sameIntents("cache", file, trace.getKey(), plain, cached, trace.getValue(), own))
+			    continue;
+			long hits = cached.getDecisionCache().getHitCount();
+			if(own && hits == 0)
+			    fail("cache", file + " on " + trace.getKey() + ": the cache never answered");
+			else
+			    pass("cache", file + " on " + trace.getKey() + ": same intents in "
+				 + trace.getValue().length + " decisions, " + hits + " from the cache");
+		    }
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns a JasonAgent that reasons every decision
+    // through, however long it takes
+    static JasonAgent everyCycleAgent(String asl)
+    {
+	JasonAgent agent = new JasonAgent(asl);
+	agent.setChangeDriven(false);
+	agent.setDecisionBudget(DecisionEngine.NO_DECISION_BUDGET);
+	return agent;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function feeds a trace to two agents and tells whether they chose
+    // alike, after reporting where they first did not. If the expected agent
+    // must run, it also reports it stopping for want of an applicable plan.
+    private static boolean sameIntents(String check, String asl, String traceName, JasonAgent expected,
+				       DecisionEngine actual, long[] trace, boolean mustRun)
+    {
+	for(int i = 0 ; i < trace.length ; i ++)
+	    {
+		Intent a = expected.getIntent(trace[i]);
+		Intent b = actual.getIntent(trace[i]);
+		if(a != b)
+		    {
+			fail(check, asl + " on " + traceName + " differs at decision " + i
+			     + " on " + BeliefSet.toString(trace[i]) + ": " + b + " instead of " + a);
+			return false;
+		    }
+		if(mustRun && stopped(expected))
+		    {
+			fail(check, asl + " on " + traceName + ": Jason stopped at decision " + i);
+			return false;
+		    }
+	    }
+	return true;
+    }
+
+    //---------------------------------------------------------------------------
+    // Checks the percentiles of a LatencyHistogram against those of the
+    // sorted durations: a bucket is at most 1/16 of its lower bound wide, so
+    // an estimate may exceed the exact value by that much but never fall
+    // below it
+    private static void latency()
+    {
+	Random random = new Random(1);
+	long[] durations = new long[1000000];
+	LatencyHistogram histogram = new LatencyHistogram();
+	for(int i = 0 ; i < durations.length ; i ++)
+	    {
+		durations[i] = (long)(Math.exp(random.nextGaussian() * 2 + 10));
+		histogram.record(durations[i]);
+	    }
+
+	long[] sorted = durations.clone();
+	Arrays.sort(sorted);
+	boolean passed = histogram.getCount() == durations.length
+	    && histogram.getMax() == sorted[sorted.length - 1];
+	if(!passed)
+	    fail("latency", "count " + histogram.getCount() + " or max " + histogram.getMax() + " is wrong");
+	for(double fraction : new double[] {0.5, 0.9, 0.99, 0.999})
+	    {
+		long exact = sorted[(int)Math.ceil(fraction * sorted.length) - 1];
+		long estimate = histogram.getPercentile(fraction);
+		if(estimate < exact || estimate > exact + exact / 16)
+		    {
+			passed = false;
+			fail("latency", "p" + fraction * 100 + " is " + estimate + " ns, exactly " + exact + " ns");
+		    }
+	    }
+	if(passed)
+	    pass("latency", "percentiles within 1/16 of the exact ones");
+    }
+
+    //---------------------------------------------------------------------------
+    // Plays cycles to a CycleScheduler through SenseBodyParser and checks the
+    // commands it counts as idle, dropped and late. In a script "c" is a
+    // command sent, "x" one the server carried out and "sN" a sense_body of
+    // time N arriving as cycle N starts, or as cycle C starts for "sN@C";
+    // then come the expected idle cycles, dropped and late commands and
+    // server time. It also checks that the start of cycles is still known
+    // after play has been stopped
+    private static final Object[][] SCHEDULER_SCRIPTS = {
+	// one command on time, two in a cycle, one a cycle late, then nothing
+	{"s0 c x s1 c c x s2 c s3 c x s4 s5", 2, 2, 1, 5},
+	// no cycle is idle before the first command
+	{"s0 s1 s2 c x s3 s4", 1, 0, 0, 4},
+	// repeated and older sense_bodies are ignored
+	{"s0 c x s1 s1 s0 c x s2 s2 s3", 1, 0, 0, 3},
+	// a lost sense_body leaves two commands carried out over two cycles
+	{"s0 c x s1 c x c x s3 c x s4", 0, 0, 0, 4},
+	// a late command carried out with the next one
+	{"s0 c x s1 c s2 c x x s3", 1, 0, 1, 3},
+	// but one not carried out in the next cycle either was dropped
+	{"s0 c x s1 c s2 s3 c x s4", 2, 1, 0, 4},
+	// while play is stopped the time stands still but cycles go by
+	{"s0 c x s1 s1@2 s1@3 c x s2@4", 2, 0, 0, 2},
+	{"s0 c x s1 c x s1@2 c x s1@3 c x s2@4 c x s3@5", 0, 0, 0, 3},
+    };
+
+    private static void scheduler()
+	throws IOException
+    {
+	boolean passed = true;
+	for(Object[] script : SCHEDULER_SCRIPTS)
+	    {
+		CycleScheduler scheduler = new CycleScheduler(100, 0);
+		SenseBodyParser parser = new SenseBodyParser();
+		long executed = 0;
+		for(String step : ((String)script[0]).split(" "))
+		    {
+			if(step.equals("c"))
+			    scheduler.commandSent();
+			else if(step.equals("x"))
+			    executed ++;
+			else
+			    {
+				int at = step.indexOf('@');
+				int time = Integer.parseInt(step.substring(1, at < 0 ? step.length() : at));
+				int cycle = at < 0 ? time : Integer.parseInt(step.substring(at + 1));
+				parser.parse(senseBody(time, executed));
+				scheduler.senseBody(parser.getTime(), cycle * 100000000L, parser.getBodyCommands());
+			    }
+		    }
+		long[] expected = {(Integer)script[1], (Integer)script[2], (Integer)script[3], (Integer)script[4]};
+		long[] actual = {scheduler.getIdleCycleCount(), scheduler.getDuplicateCommandCount(),
+				 scheduler.getLateCommandCount(), scheduler.getServerTime()};
+		if(!Arrays.equals(expected, actual))
+		    {
+			passed = false;
+			fail("scheduler", "idle, dropped, late and server time " + Arrays.toString(actual)
+			     + ", expected " + Arrays.toString(expected) + " for " + script[0]);
+		    }
+	    }
+
+	// See messages 2 to 8 ms into their cycle, and a stop of 5 s at time
+	// 20 before the time moves on again for 100 cycles
+	CycleScheduler scheduler = new CycleScheduler(100, 0);
+	long step = 100000000L;
+	int cycles = 171;
+	for(int c = 0 ; c < cycles ; c ++)
+	    scheduler.observe(c <= 20 ? c : Math.max(20, c - 50), c * step + 2000000L + c % 7 * 1000000L);
+	long start = cycles * step + 2000000L;
+	if(scheduler.cycleAt(start + 1000000L) != cycles || scheduler.cycleAt(start - 1000000L) != cycles - 1)
+	    {
+		passed = false;
+		fail("scheduler", "after a stop the cycles are taken to start more than 1 ms away"
+		     + " from the earliest see message in them");
+	    }
+
+	if(passed)
+	    pass("scheduler", SCHEDULER_SCRIPTS.length + " sense_body sequences counted as expected, cycles followed through a stop");
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns a protocol 9 sense_body message of the given cycle
+    // with the executed body commands spread over kick, dash, turn, move and
+    // catch, and counts that are not body commands in between
+    private static String senseBody(int time, long executed)
+    {
+	long[] counts = new long[5];
+	for(long e = 0 ; e < executed ; e ++)
+	    counts[(int)(e % counts.length)] ++;
+	return "(sense_body " + time + " (view_mode high normal) (stamina 8000 1) (speed 0.3 12)"
+	    + " (head_angle 0) (kick " + counts[0] + ") (dash " + counts[1] + ") (turn " + counts[2]
+	    + ") (say 7) (turn_neck 5) (catch " + counts[4] + ") (move " + counts[3] + ") (change_view 2)"
+	    + " (arm (movable 0) (expires 0) (target 0 0) (count 9)) (focus (target none) (count 4))"
+	    + " (tackle (expires 0) (count 6)))";
+    }
+
+    //---------------------------------------------------------------------------
+    // Encodes commands as Krislet does into a buffer of its size, and checks
+    // that text too long for it is cut off and the command still closed
+    private static void encoder()
+    {
+	CommandEncoder encoder = new CommandEncoder(ByteBuffer.allocate(4096));
+	StringBuilder message = new StringBuilder();
+	while(message.length() < 5000)
+	    message.append("pass");
+	String[][] cases = {
+	    {encoded(encoder.begin("say").append("pass").end()), "(say pass)"},
+	    {encoded(encoder.begin("change_view").append("wide").append("high").end()), "(change_view wide high)"},
+	    {encoded(encoder.begin("say").append(message).end()),
+	     "(say " + message.substring(0, 4096 - "(say )".length()) + ")"},
+	    {encoded(encoder.begin("change_view").append(message).append("high").end()),
+	     "(change_view " + message.substring(0, 4096 - "(change_view )".length()) + ")"},
+	    {encoded(encoder.begin("say").append(message.substring(0, 4096 - "(say  )".length())).append(-12.5).end()),
+	     "(say " + message.substring(0, 4096 - "(say  )".length()) + " )"},
+	    {encoded(encoder.begin("say").append(message.substring(0, 4096 - "(say  -1)".length())).append(-12.5).end()),
+	     "(say " + message.substring(0, 4096 - "(say  -1)".length()) + " -1)"},
+	    {encoded(encoder.begin("kick").append(75).append(-12.3).end()), "(kick 75.0 -12.3)"},
+	};
+	boolean passed = true;
+	for(String[] c : cases)
+	    if(!c[0].equals(c[1]))
+		{
+		    passed = false;
+		    fail("encoder", c[0].length() + " bytes encoded, expected " + c[1].length()
+			 + ": " + c[0].substring(0, Math.min(c[0].length(), 40)) + "...");
+		}
+	if(passed)
+	    pass("encoder", cases.length + " commands encoded within the buffer");
+    }
+
+    private static String encoded(ByteBuffer buffer)
+    {
+	byte[] bytes = new byte[buffer.remaining()];
+	buffer.get(bytes);
+	return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    //===========================================================================
+    // Supporting functions
+
+    //---------------------------------------------------------------------------
+    // This function returns the recorded traces by file name, those of the
+    // given files or else those in Recordings/, followed by a random one
+    static Map<String, long[]> readTraces(String[] traceFiles)
+	throws IOException
+    {
+	Map<String, long[]> traces = new LinkedHashMap<String, long[]>();
+	if(traceFiles.length == 0)
+	    {
+		traceFiles = new String[ROLES.length];
+		for(int r = 0 ; r < ROLES.length ; r ++)
+		    traceFiles[r] = recording(ROLES[r]);
+	    }
+	for(String file : traceFiles)
+	    traces.put(file, readTrace(file));
+	traces.put("a random trace", randomTrace(new Random(1), 4096));
+	return traces;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the trace file of a game played by a role
+    static String recording(String role)
+    {
+	return "Recordings/" + role + ".trace";
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns cycles of perceptions in which one or two
+    // beliefs change at a time
+    static long[] randomTrace(Random random, int length)
+    {
+	long[] trace = new long[length];
+	long set = BeliefSet.EMPTY;
+	for(int i = 0 ; i < length ; i ++)
+	    {
+		int flips = 1 + random.nextInt(2);
+		for(int f = 0 ; f < flips ; f ++)
+		    set ^= Belief.values()[random.nextInt(Belief.values().length)].mask;
+		trace[i] = set & ~Belief.TESTING.mask;
+	    }
+	return trace;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function reads the see messages of a corpus file, one per line
+    static List<String> readSeeCorpus(String file)
+	throws IOException
+    {
+	List<String> corpus = new ArrayList<String>();
+	for(String line : Files.readAllLines(Paths.get(file)))
+	    if(line.startsWith("(see "))
+		corpus.add(line.trim());
+	if(corpus.isEmpty())
+	    throw new IOException("no see messages in " + file);
+	return corpus;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function reads a trace written by Krislet -record: the
+    // perceptions of one decision per line
+    static long[] readTrace(String file)
+	throws IOException
+    {
+	List<String> lines = Files.readAllLines(Paths.get(file));
+	long[] trace = new long[lines.size()];
+	for(int i = 0 ; i < trace.length ; i ++)
+	    trace[i] = BeliefSet.parse(lines.get(i));
+	return trace;
+    }
+
+    private static void pass(String check, String message)
+    {
+	System.out.printf("%-12s %s%n", check, message);
+    }
+
+    private static void fail(String check, String message)
+    {
+	s_failures ++;
+	System.out.printf("%-12s FAILED: %s%n", check, message);
+    }
+}
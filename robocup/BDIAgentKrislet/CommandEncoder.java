@@ -0,0 +1,151 @@
+import java.nio.*;
+
+/**
+*   Writes client commands such as (kick 75.0 -12.3) straight into a reusable
+*   byte buffer.
+*
+*   Numbers are formatted as ASCII with at most FRACTION_DIGITS digits after
+*   the decimal point, and there is no intermediate String, so encoding a
+*   command does not allocate.
+*
+*   Usage: encoder.begin("kick").append(power).append(direction).end()
+*   returns the buffer flipped and ready to be sent.
+*
+*   Text and numbers are cut off where they would leave no room for the
+*   closing parenthesis, so a say message longer than the buffer is sent
+*   shortened instead of overflowing it, and so is anything after it.
+*/
+class CommandEncoder
+{
+    private static final int FRACTION_DIGITS = 2;
+    private static final long FRACTION_SCALE = 100;
+    private static final long MAX_SCALED = Long.MAX_VALUE / 10;
+
+    private final ByteBuffer m_buffer;
+    private final byte[] m_digits;
+
+    /**
+     * @brief Creates an encoder that writes into the given buffer.
+     * @param buffer Buffer that is cleared and reused for every command.
+     */
+    public CommandEncoder(ByteBuffer buffer)
+    {
+	m_buffer = buffer;
+	m_digits = new byte[20];
+    }
+
+    /**
+     * @brief Starts a new command, discarding whatever the buffer held before.
+     * @param name Command name, e.g. "dash".
+     */
+    public CommandEncoder begin(String name)
+    {
+	m_buffer.clear();
+	m_buffer.put((byte)'(');
+	putAscii(name);
+	return this;
+    }
+
+    /**
+     * @brief Appends a space and a number in fixed precision.
+     */
+    public CommandEncoder append(double value)
+    {
+	putByte(' ');
+	putNumber(value);
+	return this;
+    }
+
+    /**
+     * @brief Appends a space and the given text unchanged, or as much of it
+     * as fits in the buffer.
+     */
+    public CommandEncoder append(CharSequence text)
+    {
+	putAscii(" ");
+	putAscii(text);
+	return this;
+    }
+
+    /**
+     * @brief Closes the command.
+     * @return The buffer, flipped so that it holds exactly the encoded command.
+     */
+    public ByteBuffer end()
+    {
+	m_buffer.put((byte)')');
+	m_buffer.flip();
+	return m_buffer;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function writes characters as single bytes, as many as fit before
+    // the byte kept for end()
+    private void putAscii(CharSequence text)
+    {
+	int length = Math.min(text.length(), m_buffer.remaining() - 1);
+	for(int c = 0 ; c < length ; c ++)
+	    m_buffer.put((byte)text.charAt(c));
+    }
+
+    //---------------------------------------------------------------------------
+    // This function writes a single byte if it fits before the byte kept for
+    // end()
+    private void putByte(int b)
+    {
+	if(m_buffer.remaining() > 1)
+	    m_buffer.put((byte)b);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function writes a number rounded to FRACTION_DIGITS digits. Trailing
+    // zeros of the fraction are dropped, but at least one fraction digit is
+    // kept, so 75 is written as "75.0" like Double.toString does.
+    private void putNumber(double value)
+    {
+	if(Double.isNaN(value))
+	    {
+		putAscii("NaN");
+		return;
+	    }
+	double magnitude = Math.abs(value);
+	if(Double.isInfinite(value) || magnitude * FRACTION_SCALE >= MAX_SCALED)
+	    {
+		// Far outside anything the server accepts; not worth a fast path.
+		putAscii(Double.toString(value));
+		return;
+	    }
+
+	long scaled = Math.round(magnitude * FRACTION_SCALE);
+	if(scaled != 0 && value < 0)
+	    putByte('-');
+
+	putDigits(scaled / FRACTION_SCALE, 1);
+	putByte('.');
+
+	long fraction = scaled % FRACTION_SCALE;
+	int digits = FRACTION_DIGITS;
+	while(digits > 1 && fraction % 10 == 0)
+	    {
+		fraction /= 10;
+		digits --;
+	    }
+	putDigits(fraction, digits);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function writes a non-negative integer padded with leading zeros
+    // to at least minDigits digits
+    private void putDigits(long value, int minDigits)
+    {
+	int count = 0;
+	do
+	    {
+		m_digits[count ++] = (byte)('0' + (value % 10));
+		value /= 10;
+	    }
+	while(value != 0 || count < minDigits);
+	while(count > 0)
+	    putByte(m_digits[-- count]);
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.*;
+
+/**
+*   Sends at most one body command (move, turn, dash, kick) per server cycle.
+*
+*   The server carries out a single body command per cycle and ignores the
+*   rest, yet some intents take two (KICK_TO_SIDE kicks and then turns).
+*   Brain sends its commands through this queue: the first body command of
+*   a cycle goes straight to the server and any further ones wait for the
+*   following cycles, one each. A turn that joins a queued turn is added to
+*   it rather than given a cycle of its own.
+*
+*   Brain calls startCycle() once per server cycle, sendQueued() to send the
+*   next waiting command instead of deciding again, and dropQueued() when
+*   the player's perceptions have changed since the commands were queued so
+*   that they no longer fit. Other commands are passed on as they come.
+*/
+class CommandQueue implements SendCommand
+{
+    private enum Kind { MOVE, TURN, DASH, KICK }
+
+    private static final class Command
+    {
+	final Kind kind;
+	double a;
+	final double b;
+
+	Command(Kind kind, double a, double b)
+	{
+	    this.kind = kind;
+	    this.a = a;
+	    this.b = b;
+	}
+    }
+
+    private final SendCommand m_server;
+    private final ArrayDeque<Command> m_queue = new ArrayDeque<Command>();
+    private boolean m_sentThisCycle;
+    private long m_lastSent;			// System.nanoTime() of the last body command
+
+    // Command statistics
+    private long m_deferred;			// queued for a later cycle
+    private long m_sentLater;			// sent from the queue
+    private long m_dropped;			// dropped from the queue unsent
+    private long m_coalesced;			// turns added to a queued turn
+
+    public CommandQueue(SendCommand server)
+    {
+	m_server = server;
+    }
+
+    /**
+     * @brief Marks the start of a server cycle, in which one body command
+     * may be sent.
+     */
+    public void startCycle()
+    {
+	m_sentThisCycle = false;
+    }
+
+    public boolean hasQueued()
+    {
+	return !m_queue.isEmpty();
+    }
+
+    /**
+     * @brief Sends the next queued command, if one is waiting and none has
+     * been sent this cycle.
+     * @return True if a command was sent.
+     */
+    public boolean sendQueued()
+    {
+	if(m_sentThisCycle || m_queue.isEmpty())
+	    return false;
+	Command command = m_queue.poll();
+	send(command.kind, command.a, command.b);
+	m_sentLater++;
+	return true;
+    }
+
+    /**
+     * @brief Drops the queued commands unsent.
+     */
+    public void dropQueued()
+    {
+	m_dropped += m_queue.size();
+	m_queue.clear();
+    }
+
+    public void move(double x, double y)
+    {
+	body(Kind.MOVE, x, y);
+    }
+
+    public void turn(double moment)
+    {
+	Command last = m_queue.peekLast();
+	if(last != null && last.kind == Kind.TURN)
+	    {
+		last.a = normalize(last.a + moment);
+		m_coalesced++;
+		return;
+	    }
+	body(Kind.TURN, moment, 0);
+    }
+
+    public void dash(double power)
+    {
+	body(Kind.DASH, power, 0);
+    }
+
+    public void kick(double power, double direction)
+    {
+	body(Kind.KICK, power, direction);
+    }
+
+    public void turn_neck(double moment)
+    {
+	m_server.turn_neck(moment);
+    }
+
+    public void say(String message)
+    {
+	m_server.say(message);
+    }
+
+    public void changeView(String angle, String quality)
+    {
+	m_server.changeView(angle, quality);
+    }
+
+    public void bye()
+    {
+	m_server.bye();
+    }
+
+    public void done()
+    {
+	m_server.done();
+    }
+
+    /**
+     * @brief When the last body command was sent, as System.nanoTime().
+     */
+    public long getLastSendTime()
+    {
+	return m_lastSent;
+    }
+
+    /**
+     * @brief Commands that were held back for a later cycle.
+     */
+    public long getDeferredCount()
+    {
+	return m_deferred;
+    }
+
+    /**
+     * @brief Held back commands that were sent in a later cycle.
+     */
+    public long getSentLaterCount()
+    {
+	return m_sentLater;
+    }
+
+    /**
+     * @brief Held back commands that were dropped because the perceptions
+     * they were chosen for had changed.
+     */
+    public long getDroppedCount()
+    {
+	return m_dropped;
+    }
+
+    /**
+     * @brief Turns added to a turn that was already waiting.
+     */
+    public long getCoalescedCount()
+    {
+	return m_coalesced;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function sends a body command now if this cycle has none yet and
+    // nothing is waiting before it, and queues it otherwise
+    private void body(Kind kind, double a, double b)
+    {
+	if(m_sentThisCycle || !m_queue.isEmpty())
+	    {
+		m_queue.add(new Command(kind, a, b));
+		m_deferred++;
+		return;
+	    }
+	send(kind, a, b);
+    }
+
+    private void send(Kind kind, double a, double b)
+    {
+	switch(kind)
+	    {
+	    case MOVE:
+		m_server.move(a, b);
+		break;
+	    case TURN:
+		m_server.turn(a);
+		break;
+	    case DASH:
+		m_server.dash(a);
+		break;
+	    case KICK:
+		m_server.kick(a, b);
+		break;
+	    }
+	m_sentThisCycle = true;
+	m_lastSent = System.nanoTime();
+    }
+
+    //---------------------------------------------------------------------------
+    // This function brings an angle into -180..180
+    private static double normalize(double angle)
+    {
+	angle = angle % 360;
+	if(angle > 180)
+	    angle -= 360;
+	else if(angle < -180)
+	    angle += 360;
+	return angle;
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+*   Runs the plans of an asl file compiled to Java by AslCompiler.
+*
+*   The AgentSpecifications only use 0-arity beliefs, actions and goals, so a
+*   plan's context is a bit test over the cycle's BeliefSet and the agent's
+*   mental notes (the beliefs its plans add and remove), and its body is a
+*   chain of states. A generated subclass supplies select(), which picks the
+*   first applicable plan for a goal, and step(), which performs the step of
+*   a plan body a state stands for. This class keeps the goal stack, the
+*   states where the unfinished plans resume.
+*
+*   Reasoning follows Jason's cycle by cycle, so a compiled agent chooses the
+*   same intents as a JasonAgent running the same file, in the same number of
+*   reasoning cycles. In each cycle a goal posted in the last cycle gets its
+*   plan, then one step of the intention is performed: an action ends the
+*   decision, a goal is posted and a mental note is added or removed. The
+*   step after an action is performed in the next decision, along with
+*   finishing the plans the action completed. A mental note that changes the
+*   beliefs is an event to Jason, so finishing the plans it completed takes a
+*   cycle of its own, as does finishing a plan with no steps; after a note
+*   that changes nothing they are finished at once. When no plan is
+*   applicable to a goal the intention is dropped and the agent does nothing
+*   more, as in Jason.
+*/
+abstract class CompiledAgent implements DecisionEngine {
+
+    /** State of a plan body that has no steps left. */
+    protected static final int END = 0;
+
+    /** Returned by select() when no plan is applicable. */
+    protected static final int NO_PLAN = -1;
+
+    private static final int NO_GOAL = -1;
+
+    private final String asl;
+    private final long sourceCrc;
+    private final String[] goalNames;
+
+    // The intention: the state each unfinished plan resumes at, innermost
+    // last, and the goal posted for a plan in the next cycle
+    private int[] stack = new int[16];
+    private int depth = 0;
+    private int goal;
+    private boolean acted = false;      // an action awaits Jason's feedback
+    private long notes;
+
+    // What the last step() did
+    private Intent stepAction;
+    private boolean stepActed;
+    private int stepGoal;
+
+    private long decisionBudget = SoccerParams.decision_budget * 1000000L;     // ns
+    private int reasoningCycleLimit = SoccerParams.reasoning_cycle_limit;
+    private Fallback fallback = Fallback.WAIT;
+    private Intent lastIntent = Intent.WAIT;
+    private int unknownActions = 0;
+
+    // Decision metrics, volatile as PlayerMetrics reads them while the
+    // agent decides
+    private volatile long decisions = 0;
+    private volatile int lastDecisionCycles = 0;
+    private volatile long totalDecisionCycles = 0;
+    private volatile int mostDecisionCycles = 0;
+    private volatile long overruns = 0;
+    private volatile long cycleLimitHits = 0;
+
+    /**
+    *   @param asl          The asl file the subclass was generated from.
+    *   @param sourceCrc    CRC-32 of that file when it was compiled.
+    *   @param goalNames    Name of each goal, by number.
+    *   @param initialGoal  The goal the agent starts with, or NO_PLAN for none.
+    *   @param initialNotes The mental notes the agent starts with.
+    */
+    protected CompiledAgent(String asl, long sourceCrc, String[] goalNames, int initialGoal, long initialNotes) {
+        this.asl = asl;
+        this.sourceCrc = sourceCrc;
+        this.goalNames = goalNames;
+        this.goal = initialGoal < 0 ? NO_GOAL : initialGoal;
+        this.notes = initialNotes;
+    }
+
+    /**
+    *   The compiled agent for an asl file: an instance of the class
+    *   AslCompiler generates for it, Compiled followed by the file's name
+    *   (e.g. CompiledMidfielder for AgentSpecifications/midfielder.asl).
+    *   @return The agent, or null if the file has not been compiled or has
+    *   changed since it was.
+    */
+    public static CompiledAgent forFile(String agent_asl) {
+        String name = className(agent_asl);
+        CompiledAgent agent;
+        try {
+            agent = (CompiledAgent)Class.forName(name).getDeclaredConstructor().newInstance();
+        }catch(ReflectiveOperationException | ClassCastException e){
+            System.out.println(agent_asl + " has not been compiled (no " + name + ")");
+            return null;
+        }
+        try {
+            if (crc(agent_asl) != agent.sourceCrc) {
+                System.out.println(agent_asl + " has changed since " + name + " was generated, run AslCompiler again");
+                return null;
+            }
+        }catch(IOException e){
+            System.out.println("Cannot read " + agent_asl + ": " + e);
+            return null;
+        }
+        return agent;
+    }
+
+    /**
+    *   @return The name of the class generated for an asl file.
+    */
+    static String className(String agent_asl) {
+        String name = new File(agent_asl).getName();
+        if (name.endsWith(".asl")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        return "Compiled" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+    *   @return The CRC-32 of a file's contents.
+    */
+    static long crc(String file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(Paths.get(file)));
+        return crc.getValue();
+    }
+
+    /**
+    *   Picks the first plan for a goal whose context holds.
+    *   @param p BeliefSet of the cycle's perceptions.
+    *   @param n The mental notes.
+    *   @return The first state of the plan's body, or NO_PLAN.
+    */
+    protected abstract int select(int goal, long p, long n);
+
+    /**
+    *   Performs the step a state stands for by calling act(), achieve(),
+    *   believe() or disbelieve().
+    *   @return The state after it.
+    */
+    protected abstract int step(int state);
+
+    /** Performs an action; null for one that is not an Intent. */
+    protected final int act(Intent intent, int next) {
+        stepActed = true;
+        stepAction = intent;
+        return next;
+    }
+
+    /** Posts a goal. */
+    protected final int achieve(int goal, int next) {
+        stepGoal = goal;
+        return next;
+    }
+
+    /** Adds a mental note. */
+    protected final int believe(long note, int next) {
+        notes |= note;
+        return next;
+    }
+
+    /** Removes a mental note. */
+    protected final int disbelieve(long note, int next) {
+        notes &= ~note;
+        return next;
+    }
+
+    @Override
+    public Intent getIntent(long perceptions) {
+        long deadline = System.nanoTime() + decisionBudget;
+        Intent intent = null;
+        int cycles = 0;
+        while (intent == null) {
+            if (cycles >= reasoningCycleLimit || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            intent = reasoningCycle(perceptions);
+            cycles++;
+            if (intent == null && depth == 0 && goal == NO_GOAL) {
+                // Nothing left to do: Jason would cycle idly until the limit
+                cycles = Math.max(cycles, reasoningCycleLimit);
+            }
+        }
+
+        decisions++;
+        lastDecisionCycles = cycles;
+        totalDecisionCycles += cycles;
+        mostDecisionCycles = Math.max(mostDecisionCycles, cycles);
+
+        if (intent != null) {
+            lastIntent = intent;
+            return intent;
+        }
+        if (cycles >= reasoningCycleLimit) {
+            cycleLimitHits++;
+        } else {
+            overruns++;
+        }
+        return fallback == Fallback.LAST_INTENT ? lastIntent : Intent.WAIT;
+    }
+
+    /**
+    *   Runs one reasoning cycle.
+    *   @return The intent of the action performed, or null if none was.
+    */
+    private Intent reasoningCycle(long perceptions) {
+        // A goal posted in the last cycle gets its plan
+        if (goal != NO_GOAL) {
+            int first = select(goal, perceptions, notes);
+            if (first == NO_PLAN) {
+                System.out.println(asl + ": no applicable plan for +!" + goalNames[goal] + ", the agent has stopped");
+                goal = NO_GOAL;
+                depth = 0;
+                return null;
+            }
+            goal = NO_GOAL;
+            push(first);
+        }
+        if (depth == 0) {
+            return null;
+        }
+
+        if (acted) {
+            // The feedback of the last action finishes the plans it completed
+            acted = false;
+            popFinished();
+            if (depth == 0) {
+                return null;
+            }
+        }else if (stack[depth - 1] == END) {
+            popFinished();
+            return null;
+        }
+
+        stepActed = false;
+        stepGoal = NO_GOAL;
+        long notesBefore = notes;
+        int next = step(stack[depth - 1]);
+        stack[depth - 1] = next;
+        if (stepActed) {
+            acted = true;
+            if (stepAction == null) {
+                unknownActions++;
+                return JasonAgent.UNKNOWN_ACTION_INTENT;
+            }
+            return stepAction;
+        }
+        if (stepGoal != NO_GOAL) {
+            // Nothing is left of a plan whose last step posts a goal
+            if (next == END) {
+                depth--;
+            }
+            goal = stepGoal;
+        }else if (notes == notesBefore) {
+            // A note that changed nothing lets Jason finish plans at once
+            popFinished();
+        }
+        return null;
+    }
+
+    private void push(int state) {
+        if (depth == stack.length) {
+            stack = java.util.Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = state;
+    }
+
+    private void popFinished() {
+        while (depth > 0 && stack[depth - 1] == END) {
+            depth--;
+        }
+    }
+
+    @Override
+    public void setDecisionBudget(long millis) {
+        decisionBudget = millis * 1000000L;
+    }
+
+    @Override
+    public void setReasoningCycleLimit(int limit) {
+        reasoningCycleLimit = limit;
+    }
+
+    @Override
+    public void setFallback(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+    *   @return BeliefSet.ALL: the generated code does not record which
+    *   contexts a decision tested.
+    */
+    @Override
+    public long getRelevantBeliefs() {
+        return BeliefSet.ALL;
+    }
+
+    @Override
+    public long getDecisionCount() {
+        return decisions;
+    }
+
+    @Override
+    public int getLastDecisionCycles() {
+        return lastDecisionCycles;
+    }
+
+    @Override
+    public long getTotalDecisionCycles() {
+        return totalDecisionCycles;
+    }
+
+    @Override
+    public int getMostDecisionCycles() {
+        return mostDecisionCycles;
+    }
+
+    @Override
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    @Override
+    public long getCycleLimitCount() {
+        return cycleLimitHits;
+    }
+
+    /**
+    *   @return How many chosen actions did not name an Intent and were
+    *   replaced by JasonAgent.UNKNOWN_ACTION_INTENT.
+    */
+    public int getUnknownActionCount() {
+        return unknownActions;
+    }
+
+    /**
+    *   @return The goals still being pursued, outermost first, and the mental
+    *   notes, for comparing with Jason when a decision differs.
+    */
+    public String describe() {
+        StringBuilder builder = new StringBuilder("stack [");
+        for (int i = 0; i < depth; i++) {
+            builder.append(i == 0 ? "" : ", ").append(stack[i]);
+        }
+        builder.append("]");
+        if (goal != NO_GOAL) {
+            builder.append(" posted +!").append(goalNames[goal]);
+        }
+        return builder.append(" notes ").append(Long.toBinaryString(notes)).toString();
+    }
+}
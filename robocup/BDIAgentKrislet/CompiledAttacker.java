@@ -0,0 +1,238 @@
+// Generated by AslCompiler from AgentSpecifications/Attacker.asl, do not edit.
+// Run AslCompiler again after changing the asl file.
+
+/**
+*   The plans of AgentSpecifications/Attacker.asl as a state machine, see CompiledAgent.
+*/
+final class CompiledAttacker extends CompiledAgent {
+
+    static final String ASL = "AgentSpecifications/Attacker.asl";
+    static final long SOURCE_CRC = 0x9f4cd89bL;
+
+    // Percepts
+    private static final long BALL_SEEN = Belief.BALL_SEEN.mask;
+    private static final long AT_BALL = Belief.AT_BALL.mask;
+    private static final long ENEMY_GOAL_SEEN = Belief.ENEMY_GOAL_SEEN.mask;
+    private static final long TESTING = Belief.TESTING.mask;
+    private static final long TEAMMATE_CLOSER_TO_BALL = Belief.TEAMMATE_CLOSER_TO_BALL.mask;
+    private static final long AT_OPPOSING_NET = Belief.AT_OPPOSING_NET.mask;
+    private static final long BALL_TO_LEFT = Belief.BALL_TO_LEFT.mask;
+    private static final long FACING_BALL = Belief.FACING_BALL.mask;
+    private static final long BALL_TO_RIGHT = Belief.BALL_TO_RIGHT.mask;
+    private static final long ENEMY_AT_BALL = Belief.ENEMY_AT_BALL.mask;
+    private static final long ENEMY_BLOCKING_SHOT = Belief.ENEMY_BLOCKING_SHOT.mask;
+    private static final long ENEMY_GOAL_TO_LEFT = Belief.ENEMY_GOAL_TO_LEFT.mask;
+    private static final long ENEMY_GOAL_TO_RIGHT = Belief.ENEMY_GOAL_TO_RIGHT.mask;
+
+    // Mental notes
+    private static final long BALL_WAS_LEFT = 1L << 0;
+    private static final long ENEMY_GOAL_WAS_LEFT = 1L << 1;
+
+    // Goals
+    private static final int FINDBALL = 0;
+    private static final int WAIT_FOR_BALL = 1;
+    private static final int MOVETOBALL = 2;
+    private static final int KICK = 3;
+    private static final int FINDOPPGOAL = 4;
+
+    private static final String[] GOAL_NAMES = {"findball", "waitForBall", "movetoball", "kick", "findoppgoal"};
+
+    CompiledAttacker() {
+        super(ASL, SOURCE_CRC, GOAL_NAMES, FINDBALL, 0L);
+    }
+
+    @Override
+    protected int select(int goal, long p, long n) {
+        switch (goal) {
+        case FINDBALL:
+            // +!findball : ball_seen & at_ball & enemy_goal_seen & testing (line 7)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) {
+                return 1;
+            }
+            // +!findball : teammate_closer_to_ball & enemy_goal_seen & not at_opposing_net & facing_oppsing_goal (line 29)
+            // never chosen, as a belief it needs is never true
+            // +!findball : teammate_closer_to_ball & enemy_goal_seen & not at_opposing_net (line 34)
+            if ((p & (TEAMMATE_CLOSER_TO_BALL | ENEMY_GOAL_SEEN | AT_OPPOSING_NET)) == (TEAMMATE_CLOSER_TO_BALL | ENEMY_GOAL_SEEN)) {
+                return 7;
+            }
+            // +!findball : ball_seen & not at_ball & ball_to_left & facing_ball (line 40)
+            if ((p & (BALL_SEEN | AT_BALL | BALL_TO_LEFT | FACING_BALL)) == (BALL_SEEN | BALL_TO_LEFT | FACING_BALL)) {
+                return 9;
+            }
+            // +!findball : ball_seen & not at_ball & ball_to_right & facing_ball (line 47)
+            if ((p & (BALL_SEEN | AT_BALL | BALL_TO_RIGHT | FACING_BALL)) == (BALL_SEEN | BALL_TO_RIGHT | FACING_BALL)) {
+                return 12;
+            }
+            // +!findball : ball_seen & not at_ball & ball_to_left (line 54)
+            if ((p & (BALL_SEEN | AT_BALL | BALL_TO_LEFT)) == (BALL_SEEN | BALL_TO_LEFT)) {
+                return 15;
+            }
+            // +!findball : ball_seen & not at_ball & ball_to_right (line 61)
+            if ((p & (BALL_SEEN | AT_BALL | BALL_TO_RIGHT)) == (BALL_SEEN | BALL_TO_RIGHT)) {
+                return 18;
+            }
+            // +!findball : not ball_seen & ball_was_left (line 68)
+            if ((p & BALL_SEEN) == 0 && (n & BALL_WAS_LEFT) != 0) {
+                return 21;
+            }
+            // +!findball : not ball_seen (line 74)
+            if ((p & BALL_SEEN) == 0) {
+                return 23;
+            }
+            // +!findball : ball_seen & at_ball & enemy_at_ball (line 79)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_AT_BALL)) == (BALL_SEEN | AT_BALL | ENEMY_AT_BALL)) {
+                return 25;
+            }
+            // +!findball : ball_seen & at_ball & not enemy_goal_seen & not enemy_at_ball (line 84)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | ENEMY_AT_BALL)) == (BALL_SEEN | AT_BALL)) {
+                return 26;
+            }
+            // +!findball : ball_seen & at_ball & enemy_goal_seen (line 88)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN)) {
+                return 27;
+            }
+            return NO_PLAN;
+        case WAIT_FOR_BALL:
+            // +!waitForBall : not teammate_closer_to_ball (line 13)
+            if ((p & TEAMMATE_CLOSER_TO_BALL) == 0) {
+                return 2;
+            }
+            // +!waitForBall : not at_opposing_net (line 18)
+            if ((p & AT_OPPOSING_NET) == 0) {
+                return 3;
+            }
+            // +!waitForBall : at_opposing_net (line 24)
+            if ((p & AT_OPPOSING_NET) != 0) {
+                return 5;
+            }
+            return NO_PLAN;
+        case MOVETOBALL:
+            // +!movetoball : not ball_seen | not facing_ball (line 107)
+            if ((p & BALL_SEEN) == 0 || (p & FACING_BALL) == 0) {
+                return 32;
+            }
+            // +!movetoball : ball_seen & facing_ball & enemy_goal_to_left (line 112)
+            if ((p & (BALL_SEEN | FACING_BALL | ENEMY_GOAL_TO_LEFT)) == (BALL_SEEN | FACING_BALL | ENEMY_GOAL_TO_LEFT)) {
+                return 33;
+            }
+            // +!movetoball : ball_seen & facing_ball & enemy_goal_to_right (line 119)
+            if ((p & (BALL_SEEN | FACING_BALL | ENEMY_GOAL_TO_RIGHT)) == (BALL_SEEN | FACING_BALL | ENEMY_GOAL_TO_RIGHT)) {
+                return 36;
+            }
+            // +!movetoball : ball_seen & facing_ball (line 126)
+            if ((p & (BALL_SEEN | FACING_BALL)) == (BALL_SEEN | FACING_BALL)) {
+                return 39;
+            }
+            return NO_PLAN;
+        case KICK:
+            // +!kick : ball_seen & at_ball & (enemy_at_ball | enemy_blocking_shot) (line 94)
+            if ((p & (BALL_SEEN | AT_BALL)) == (BALL_SEEN | AT_BALL) && ((p & ENEMY_AT_BALL) != 0 || (p & ENEMY_BLOCKING_SHOT) != 0)) {
+                return 28;
+            }
+            // +!kick : ball_seen & at_ball & enemy_goal_seen & not (enemy_at_ball | enemy_blocking_shot) (line 100)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN) && !((p & ENEMY_AT_BALL) != 0 || (p & ENEMY_BLOCKING_SHOT) != 0)) {
+                return 30;
+            }
+            return NO_PLAN;
+        case FINDOPPGOAL:
+            // +!findoppgoal : not enemy_goal_seen & at_ball & enemy_goal_was_left (line 132)
+            if ((p & (ENEMY_GOAL_SEEN | AT_BALL)) == AT_BALL && (n & ENEMY_GOAL_WAS_LEFT) != 0) {
+                return 41;
+            }
+            // +!findoppgoal : not enemy_goal_seen & at_ball (line 139)
+            if ((p & (ENEMY_GOAL_SEEN | AT_BALL)) == AT_BALL) {
+                return 43;
+            }
+            // +!findoppgoal : enemy_goal_seen & at_ball (line 145)
+            if ((p & (ENEMY_GOAL_SEEN | AT_BALL)) == (ENEMY_GOAL_SEEN | AT_BALL)) {
+                return 45;
+            }
+            // +!findoppgoal : not at_ball (line 150)
+            if ((p & AT_BALL) == 0) {
+                return 46;
+            }
+            return NO_PLAN;
+        default:
+            return NO_PLAN;
+        }
+    }
+
+    @Override
+    protected int step(int state) {
+        switch (state) {
+        // +!findball : ball_seen & at_ball & enemy_goal_seen & testing (line 7)
+        case 1: return act(Intent.KICK_AT_NET, END);
+        // +!waitForBall : not teammate_closer_to_ball (line 13)
+        case 2: return achieve(FINDBALL, END);
+        // +!waitForBall : not at_opposing_net (line 18)
+        case 3: return act(Intent.RUN_TO_OPPOSING_GOAL, 4);
+        case 4: return achieve(WAIT_FOR_BALL, END);
+        // +!waitForBall : at_opposing_net (line 24)
+        case 5: return achieve(FINDBALL, END);
+        // +!findball : teammate_closer_to_ball & enemy_goal_seen & not at_opposing_net & facing_oppsing_goal (line 29)
+        case 6: return achieve(WAIT_FOR_BALL, END);
+        // +!findball : teammate_closer_to_ball & enemy_goal_seen & not at_opposing_net (line 34)
+        case 7: return act(Intent.TURN_UP_FIELD, 8);
+        case 8: return achieve(WAIT_FOR_BALL, END);
+        // +!findball : ball_seen & not at_ball & ball_to_left & facing_ball (line 40)
+        case 9: return act(Intent.RUN_TO_BALL, 10);
+        case 10: return believe(BALL_WAS_LEFT, 11);
+        case 11: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & not at_ball & ball_to_right & facing_ball (line 47)
+        case 12: return act(Intent.RUN_TO_BALL, 13);
+        case 13: return disbelieve(BALL_WAS_LEFT, 14);
+        case 14: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & not at_ball & ball_to_left (line 54)
+        case 15: return act(Intent.TURN_TO_BALL, 16);
+        case 16: return believe(BALL_WAS_LEFT, 17);
+        case 17: return achieve(MOVETOBALL, END);
+        // +!findball : ball_seen & not at_ball & ball_to_right (line 61)
+        case 18: return act(Intent.TURN_TO_BALL, 19);
+        case 19: return disbelieve(BALL_WAS_LEFT, 20);
+        case 20: return achieve(MOVETOBALL, END);
+        // +!findball : not ball_seen & ball_was_left (line 68)
+        case 21: return act(Intent.LOOK_LEFT, 22);
+        case 22: return achieve(FINDBALL, END);
+        // +!findball : not ball_seen (line 74)
+        case 23: return act(Intent.LOOK_RIGHT, 24);
+        case 24: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & at_ball & enemy_at_ball (line 79)
+        case 25: return achieve(KICK, END);
+        // +!findball : ball_seen & at_ball & not enemy_goal_seen & not enemy_at_ball (line 84)
+        case 26: return achieve(FINDOPPGOAL, END);
+        // +!findball : ball_seen & at_ball & enemy_goal_seen (line 88)
+        case 27: return achieve(KICK, END);
+        // +!kick : ball_seen & at_ball & (enemy_at_ball | enemy_blocking_shot) (line 94)
+        case 28: return act(Intent.KICK_TO_SIDE, 29);
+        case 29: return achieve(FINDBALL, END);
+        // +!kick : ball_seen & at_ball & enemy_goal_seen & not (enemy_at_ball | enemy_blocking_shot) (line 100)
+        case 30: return act(Intent.KICK_AT_NET, 31);
+        case 31: return achieve(FINDBALL, END);
+        // +!movetoball : not ball_seen | not facing_ball (line 107)
+        case 32: return achieve(FINDBALL, END);
+        // +!movetoball : ball_seen & facing_ball & enemy_goal_to_left (line 112)
+        case 33: return act(Intent.RUN_TO_BALL, 34);
+        case 34: return believe(ENEMY_GOAL_WAS_LEFT, 35);
+        case 35: return achieve(FINDBALL, END);
+        // +!movetoball : ball_seen & facing_ball & enemy_goal_to_right (line 119)
+        case 36: return act(Intent.RUN_TO_BALL, 37);
+        case 37: return disbelieve(ENEMY_GOAL_WAS_LEFT, 38);
+        case 38: return achieve(FINDBALL, END);
+        // +!movetoball : ball_seen & facing_ball (line 126)
+        case 39: return act(Intent.RUN_TO_BALL, 40);
+        case 40: return achieve(FINDBALL, END);
+        // +!findoppgoal : not enemy_goal_seen & at_ball & enemy_goal_was_left (line 132)
+        case 41: return act(Intent.LOOK_LEFT, 42);
+        case 42: return achieve(FINDOPPGOAL, END);
+        // +!findoppgoal : not enemy_goal_seen & at_ball (line 139)
+        case 43: return act(Intent.LOOK_RIGHT, 44);
+        case 44: return achieve(FINDOPPGOAL, END);
+        // +!findoppgoal : enemy_goal_seen & at_ball (line 145)
+        case 45: return achieve(KICK, END);
+        // +!findoppgoal : not at_ball (line 150)
+        case 46: return achieve(FINDBALL, END);
+        default:
+            throw new IllegalStateException("no state " + state);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+// Generated by AslCompiler from AgentSpecifications/defender.asl, do not edit.
+// Run AslCompiler again after changing the asl file.
+
+/**
+*   The plans of AgentSpecifications/defender.asl as a state machine, see CompiledAgent.
+*/
+final class CompiledDefender extends CompiledAgent {
+
+    static final String ASL = "AgentSpecifications/defender.asl";
+    static final long SOURCE_CRC = 0x10f42c82L;
+
+    // Percepts
+    private static final long BALL_SEEN = Belief.BALL_SEEN.mask;
+    private static final long AT_BALL = Belief.AT_BALL.mask;
+    private static final long ENEMY_GOAL_SEEN = Belief.ENEMY_GOAL_SEEN.mask;
+    private static final long TESTING = Belief.TESTING.mask;
+    private static final long CLOSE_TO_OWN_PENALTY = Belief.CLOSE_TO_OWN_PENALTY.mask;
+    private static final long OWN_PENALTY_SEEN = Belief.OWN_PENALTY_SEEN.mask;
+    private static final long FACING_OWN_PENALTY = Belief.FACING_OWN_PENALTY.mask;
+    private static final long BALL_ON_OWN_SIDE = Belief.BALL_ON_OWN_SIDE.mask;
+    private static final long FACING_BALL = Belief.FACING_BALL.mask;
+    private static final long OWN_GOAL_SEEN = Belief.OWN_GOAL_SEEN.mask;
+    private static final long BALL_ON_ENEMY_SIDE = Belief.BALL_ON_ENEMY_SIDE.mask;
+    private static final long BALL_TO_LEFT = Belief.BALL_TO_LEFT.mask;
+    private static final long BALL_TO_RIGHT = Belief.BALL_TO_RIGHT.mask;
+    private static final long ENEMY_GOAL_TO_LEFT = Belief.ENEMY_GOAL_TO_LEFT.mask;
+    private static final long ENEMY_GOAL_TO_RIGHT = Belief.ENEMY_GOAL_TO_RIGHT.mask;
+
+    // Mental notes
+    private static final long WAS_CLOSE_TO_PENALTY = 1L << 0;
+    private static final long WAS_BALL_ON_OWN_SIDE = 1L << 1;
+    private static final long PENALTY_WAS_LEFT = 1L << 2;
+    private static final long BALL_WAS_LEFT = 1L << 3;
+    private static final long ENEMY_GOAL_WAS_LEFT = 1L << 4;
+
+    // Goals
+    private static final int MOVETOPENALTY = 0;
+    private static final int MONITORBALL = 1;
+    private static final int FINDBALL = 2;
+    private static final int REMEBER = 3;
+    private static final int GOTOBALL = 4;
+    private static final int KICK = 5;
+    private static final int SHOOT = 6;
+    private static final int FINDENEMYGOAL = 7;
+    private static final int REMEBERBALLSIDE = 8;
+    private static final int REMEBERPENALTYDIRECTION = 9;
+    private static final int REMEBERBALLDIRECTION = 10;
+    private static final int REMEBERGOALDIRECTION = 11;
+
+    private static final String[] GOAL_NAMES = {"movetopenalty", "monitorball", "findball", "remeber", "gotoball", "kick", "shoot", "findenemygoal", "remeberballside", "remeberpenaltydirection", "remeberballdirection", "remebergoaldirection"};
+
+    CompiledDefender() {
+        super(ASL, SOURCE_CRC, GOAL_NAMES, MOVETOPENALTY, 0L);
+    }
+
+    @Override
+    protected int select(int goal, long p, long n) {
+        switch (goal) {
+        case MOVETOPENALTY:
+            // +!movetopenalty : ball_seen & at_ball & enemy_goal_seen & testing (line 5)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) {
+                return 1;
+            }
+            // +!movetopenalty : close_to_own_penalty | was_close_to_penalty (line 9)
+            if ((p & CLOSE_TO_OWN_PENALTY) != 0 || (n & WAS_CLOSE_TO_PENALTY) != 0) {
+                return 2;
+            }
+            // +!movetopenalty : not close_to_own_penalty & not own_penalty_seen & penalty_was_left (line 15)
+            if ((p & (CLOSE_TO_OWN_PENALTY | OWN_PENALTY_SEEN)) == 0 && (n & PENALTY_WAS_LEFT) != 0) {
+                return 5;
+            }
+            // +!movetopenalty : not close_to_own_penalty & not own_penalty_seen (line 20)
+            if ((p & (CLOSE_TO_OWN_PENALTY | OWN_PENALTY_SEEN)) == 0) {
+                return 7;
+            }
+            // +!movetopenalty : not close_to_own_penalty & own_penalty_seen & not facing_own_penalty (line 25)
+            if ((p & (CLOSE_TO_OWN_PENALTY | OWN_PENALTY_SEEN | FACING_OWN_PENALTY)) == OWN_PENALTY_SEEN) {
+                return 9;
+            }
+            // +!movetopenalty : not close_to_own_penalty & own_penalty_seen & facing_own_penalty (line 30)
+            if ((p & (CLOSE_TO_OWN_PENALTY | OWN_PENALTY_SEEN | FACING_OWN_PENALTY)) == (OWN_PENALTY_SEEN | FACING_OWN_PENALTY)) {
+                return 11;
+            }
+            return NO_PLAN;
+        case MONITORBALL:
+            // +!monitorball : ball_seen (line 35)
+            if ((p & BALL_SEEN) != 0) {
+                return 13;
+            }
+            // +!monitorball : not ball_seen (line 39)
+            if ((p & BALL_SEEN) == 0) {
+                return 0;
+            }
+            return NO_PLAN;
+        case FINDBALL:
+            // +!findball : not ball_seen & ball_was_left (line 43)
+            if ((p & BALL_SEEN) == 0 && (n & BALL_WAS_LEFT) != 0) {
+                return 14;
+            }
+            // +!findball : not ball_seen (line 48)
+            if ((p & BALL_SEEN) == 0) {
+                return 16;
+            }
+            // +!findball : ball_seen & (ball_on_own_side | was_ball_on_own_side) (line 53)
+            if ((p & BALL_SEEN) != 0 && ((p & BALL_ON_OWN_SIDE) != 0 || (n & WAS_BALL_ON_OWN_SIDE) != 0)) {
+                return 18;
+            }
+            // +!findball : ball_seen (line 58)
+            if ((p & BALL_SEEN) != 0) {
+                return 20;
+            }
+            return NO_PLAN;
+        case REMEBER:
+            // +!remeber (line 126)
+            return 44;
+        case GOTOBALL:
+            // +!gotoball : not at_ball & not ball_seen (line 64)
+            if ((p & (AT_BALL | BALL_SEEN)) == 0) {
+                return 22;
+            }
+            // +!gotoball : not at_ball & ball_seen & not facing_ball (line 68)
+            if ((p & (AT_BALL | BALL_SEEN | FACING_BALL)) == BALL_SEEN) {
+                return 23;
+            }
+            // +!gotoball : not at_ball & ball_seen & facing_ball (line 74)
+            if ((p & (AT_BALL | BALL_SEEN | FACING_BALL)) == (BALL_SEEN | FACING_BALL)) {
+                return 26;
+            }
+            // +!gotoball : at_ball (line 81)
+            if ((p & AT_BALL) != 0) {
+                return 30;
+            }
+            return NO_PLAN;
+        case KICK:
+            // +!kick : not at_ball (line 86)
+            if ((p & AT_BALL) == 0) {
+                return 31;
+            }
+            // +!kick : own_goal_seen (line 90)
+            if ((p & OWN_GOAL_SEEN) != 0) {
+                return 32;
+            }
+            // +!kick : not own_goal_seen (line 95)
+            if ((p & OWN_GOAL_SEEN) == 0) {
+                return 34;
+            }
+            return NO_PLAN;
+        case SHOOT:
+            // +!shoot : enemy_goal_seen (line 99)
+            if ((p & ENEMY_GOAL_SEEN) != 0) {
+                return 35;
+            }
+            // +!shoot : not enemy_goal_seen (line 104)
+            if ((p & ENEMY_GOAL_SEEN) == 0) {
+                return 37;
+            }
+            return NO_PLAN;
+        case FINDENEMYGOAL:
+            // +!findenemygoal : not at_ball (line 108)
+            if ((p & AT_BALL) == 0) {
+                return 38;
+            }
+            // +!findenemygoal : not enemy_goal_seen & enemy_goal_was_left (line 112)
+            if ((p & ENEMY_GOAL_SEEN) == 0 && (n & ENEMY_GOAL_WAS_LEFT) != 0) {
+                return 39;
+            }
+            // +!findenemygoal : not enemy_goal_seen (line 117)
+            if ((p & ENEMY_GOAL_SEEN) == 0) {
+                return 41;
+            }
+            // +!findenemygoal : enemy_goal_seen (line 122)
+            if ((p & ENEMY_GOAL_SEEN) != 0) {
+                return 43;
+            }
+            return NO_PLAN;
+        case REMEBERBALLSIDE:
+            // +!remeberballside : ball_on_own_side (line 134)
+            if ((p & BALL_ON_OWN_SIDE) != 0) {
+                return 48;
+            }
+            // +!remeberballside : ball_on_enemy_side (line 138)
+            if ((p & BALL_ON_ENEMY_SIDE) != 0) {
+                return 49;
+            }
+            // +!remeberballside (line 141)
+            return 0;
+        case REMEBERPENALTYDIRECTION:
+            // +!remeberpenaltydirection : penalty_to_left (line 144)
+            // never chosen, as a belief it needs is never true
+            // +!remeberpenaltydirection : penalty_to_right (line 148)
+            // never chosen, as a belief it needs is never true
+            // +!remeberpenaltydirection (line 151)
+            return 0;
+        case REMEBERBALLDIRECTION:
+            // +!remeberballdirection : ball_to_left (line 154)
+            if ((p & BALL_TO_LEFT) != 0) {
+                return 52;
+            }
+            // +!remeberballdirection : ball_to_right (line 158)
+            if ((p & BALL_TO_RIGHT) != 0) {
+                return 53;
+            }
+            // +!remeberballdirection (line 161)
+            return 0;
+        case REMEBERGOALDIRECTION:
+            // +!remebergoaldirection : enemy_goal_to_left (line 164)
+            if ((p & ENEMY_GOAL_TO_LEFT) != 0) {
+                return 54;
+            }
+            // +!remebergoaldirection : enemy_goal_to_right (line 168)
+            if ((p & ENEMY_GOAL_TO_RIGHT) != 0) {
+                return 55;
+            }
+            // +!remebergoaldirection (line 171)
+            return 0;
+        default:
+            return NO_PLAN;
+        }
+    }
+
+    @Override
+    protected int step(int state) {
+        switch (state) {
+        // +!movetopenalty : ball_seen & at_ball & enemy_goal_seen & testing (line 5)
+        case 1: return act(Intent.KICK_AT_NET, END);
+        // +!movetopenalty : close_to_own_penalty | was_close_to_penalty (line 9)
+        case 2: return believe(WAS_CLOSE_TO_PENALTY, 3);
+        case 3: return achieve(MONITORBALL, 4);
+        case 4: return achieve(FINDBALL, END);
+        // +!movetopenalty : not close_to_own_penalty & not own_penalty_seen & penalty_was_left (line 15)
+        case 5: return act(Intent.LOOK_LEFT, 6);
+        case 6: return achieve(MOVETOPENALTY, END);
+        // +!movetopenalty : not close_to_own_penalty & not own_penalty_seen (line 20)
+        case 7: return act(Intent.LOOK_RIGHT, 8);
+        case 8: return achieve(MOVETOPENALTY, END);
+        // +!movetopenalty : not close_to_own_penalty & own_penalty_seen & not facing_own_penalty (line 25)
+        case 9: return act(Intent.TURN_TO_OWN_PENALTY, 10);
+        case 10: return achieve(MOVETOPENALTY, END);
+        // +!movetopenalty : not close_to_own_penalty & own_penalty_seen & facing_own_penalty (line 30)
+        case 11: return act(Intent.RUN_TO_OWN_PENALTY, 12);
+        case 12: return achieve(MOVETOPENALTY, END);
+        // +!monitorball : ball_seen (line 35)
+        case 13: return act(Intent.TURN_TO_BALL, END);
+        // +!findball : not ball_seen & ball_was_left (line 43)
+        case 14: return act(Intent.LOOK_LEFT, 15);
+        case 15: return achieve(FINDBALL, END);
+        // +!findball : not ball_seen (line 48)
+        case 16: return act(Intent.LOOK_RIGHT, 17);
+        case 17: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & (ball_on_own_side | was_ball_on_own_side) (line 53)
+        case 18: return achieve(REMEBER, 19);
+        case 19: return achieve(GOTOBALL, END);
+        // +!findball : ball_seen (line 58)
+        case 20: return achieve(REMEBER, 21);
+        case 21: return achieve(MOVETOPENALTY, END);
+        // +!gotoball : not at_ball & not ball_seen (line 64)
+        case 22: return achieve(FINDBALL, END);
+        // +!gotoball : not at_ball & ball_seen & not facing_ball (line 68)
+        case 23: return act(Intent.TURN_TO_BALL, 24);
+        case 24: return achieve(REMEBER, 25);
+        case 25: return achieve(GOTOBALL, END);
+        // +!gotoball : not at_ball & ball_seen & facing_ball (line 74)
+        case 26: return disbelieve(WAS_CLOSE_TO_PENALTY, 27);
+        case 27: return act(Intent.RUN_TO_BALL, 28);
+        case 28: return achieve(REMEBER, 29);
+        case 29: return achieve(FINDBALL, END);
+        // +!gotoball : at_ball (line 81)
+        case 30: return achieve(KICK, END);
+        // +!kick : not at_ball (line 86)
+        case 31: return achieve(FINDBALL, END);
+        // +!kick : own_goal_seen (line 90)
+        case 32: return act(Intent.KICK_TO_DEFEND, 33);
+        case 33: return achieve(FINDBALL, END);
+        // +!kick : not own_goal_seen (line 95)
+        case 34: return achieve(SHOOT, END);
+        // +!shoot : enemy_goal_seen (line 99)
+        case 35: return act(Intent.KICK_AT_NET, 36);
+        case 36: return achieve(FINDBALL, END);
+        // +!shoot : not enemy_goal_seen (line 104)
+        case 37: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : not at_ball (line 108)
+        case 38: return achieve(FINDBALL, END);
+        // +!findenemygoal : not enemy_goal_seen & enemy_goal_was_left (line 112)
+        case 39: return act(Intent.LOOK_LEFT, 40);
+        case 40: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : not enemy_goal_seen (line 117)
+        case 41: return act(Intent.LOOK_RIGHT, 42);
+        case 42: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : enemy_goal_seen (line 122)
+        case 43: return achieve(SHOOT, END);
+        // +!remeber (line 126)
+        case 44: return achieve(REMEBERBALLSIDE, 45);
+        case 45: return achieve(REMEBERPENALTYDIRECTION, 46);
+        case 46: return achieve(REMEBERBALLDIRECTION, 47);
+        case 47: return achieve(REMEBERGOALDIRECTION, END);
+        // +!remeberballside : ball_on_own_side (line 134)
+        case 48: return believe(WAS_BALL_ON_OWN_SIDE, END);
+        // +!remeberballside : ball_on_enemy_side (line 138)
+        case 49: return disbelieve(WAS_BALL_ON_OWN_SIDE, END);
+        // +!remeberpenaltydirection : penalty_to_left (line 144)
+        case 50: return believe(PENALTY_WAS_LEFT, END);
+        // +!remeberpenaltydirection : penalty_to_right (line 148)
+        case 51: return disbelieve(PENALTY_WAS_LEFT, END);
+        // +!remeberballdirection : ball_to_left (line 154)
+        case 52: return believe(BALL_WAS_LEFT, END);
+        // +!remeberballdirection : ball_to_right (line 158)
+        case 53: return disbelieve(BALL_WAS_LEFT, END);
+        // +!remebergoaldirection : enemy_goal_to_left (line 164)
+        case 54: return believe(ENEMY_GOAL_WAS_LEFT, END);
+        // +!remebergoaldirection : enemy_goal_to_right (line 168)
+        case 55: return disbelieve(ENEMY_GOAL_WAS_LEFT, END);
+        default:
+            throw new IllegalStateException("no state " + state);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+// Generated by AslCompiler from AgentSpecifications/goalie.asl, do not edit.
+// Run AslCompiler again after changing the asl file.
+
+/**
+*   The plans of AgentSpecifications/goalie.asl as a state machine, see CompiledAgent.
+*/
+final class CompiledGoalie extends CompiledAgent {
+
+    static final String ASL = "AgentSpecifications/goalie.asl";
+    static final long SOURCE_CRC = 0x6e5d2b87L;
+
+    // Percepts
+    private static final long BALL_SEEN = Belief.BALL_SEEN.mask;
+    private static final long AT_BALL = Belief.AT_BALL.mask;
+    private static final long ENEMY_GOAL_SEEN = Belief.ENEMY_GOAL_SEEN.mask;
+    private static final long TESTING = Belief.TESTING.mask;
+    private static final long AT_OWN_NET = Belief.AT_OWN_NET.mask;
+    private static final long OWN_GOAL_SEEN = Belief.OWN_GOAL_SEEN.mask;
+    private static final long FACING_OWN_GOAL = Belief.FACING_OWN_GOAL.mask;
+    private static final long FACING_BALL = Belief.FACING_BALL.mask;
+    private static final long BALL_MED_DIST_FROM_GOALIE = Belief.BALL_MED_DIST_FROM_GOALIE.mask;
+
+    // Mental notes
+    private static final long WAS_AT_OWN_NET = 1L << 0;
+
+    // Goals
+    private static final int GO_TO_OWN_GOAL = 0;
+    private static final int GOAL_KEEP = 1;
+    private static final int RUN_TO_BALL = 2;
+    private static final int FINDBALL = 3;
+
+    private static final String[] GOAL_NAMES = {"goToOwnGoal", "goalKeep", "runToBall", "findball"};
+
+    CompiledGoalie() {
+        super(ASL, SOURCE_CRC, GOAL_NAMES, GO_TO_OWN_GOAL, 0L);
+    }
+
+    @Override
+    protected int select(int goal, long p, long n) {
+        switch (goal) {
+        case GO_TO_OWN_GOAL:
+            // +!goToOwnGoal : ball_seen & at_ball & enemy_goal_seen & testing (line 6)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) {
+                return 1;
+            }
+            // +!goToOwnGoal : at_own_net | was_at_own_net (line 12)
+            if ((p & AT_OWN_NET) != 0 || (n & WAS_AT_OWN_NET) != 0) {
+                return 2;
+            }
+            // +!goToOwnGoal : own_goal_seen & not facing_own_goal (line 17)
+            if ((p & (OWN_GOAL_SEEN | FACING_OWN_GOAL)) == OWN_GOAL_SEEN) {
+                return 4;
+            }
+            // +!goToOwnGoal : own_goal_seen & facing_own_goal (line 24)
+            if ((p & (OWN_GOAL_SEEN | FACING_OWN_GOAL)) == (OWN_GOAL_SEEN | FACING_OWN_GOAL)) {
+                return 6;
+            }
+            // +!goToOwnGoal : not own_goal_seen (line 30)
+            if ((p & OWN_GOAL_SEEN) == 0) {
+                return 8;
+            }
+            return NO_PLAN;
+        case GOAL_KEEP:
+            // +!goalKeep : at_ball & own_goal_seen (line 37)
+            if ((p & (AT_BALL | OWN_GOAL_SEEN)) == (AT_BALL | OWN_GOAL_SEEN)) {
+                return 10;
+            }
+            // +!goalKeep : at_ball & not own_goal_seen (line 43)
+            if ((p & (AT_BALL | OWN_GOAL_SEEN)) == AT_BALL) {
+                return 12;
+            }
+            // +!goalKeep : ball_seen & not facing_ball & (at_own_net | was_at_own_net) (line 49)
+            if ((p & (BALL_SEEN | FACING_BALL)) == BALL_SEEN && ((p & AT_OWN_NET) != 0 || (n & WAS_AT_OWN_NET) != 0)) {
+                return 14;
+            }
+            // +!goalKeep : ball_seen & facing_ball & ball_med_dist_from_goalie & not at_ball & (at_own_net | was_at_own_net) (line 55)
+            if ((p & (BALL_SEEN | FACING_BALL | BALL_MED_DIST_FROM_GOALIE | AT_BALL)) == (BALL_SEEN | FACING_BALL | BALL_MED_DIST_FROM_GOALIE) && ((p & AT_OWN_NET) != 0 || (n & WAS_AT_OWN_NET) != 0)) {
+                return 16;
+            }
+            // +!goalKeep : at_own_net | was_at_own_net (line 59)
+            if ((p & AT_OWN_NET) != 0 || (n & WAS_AT_OWN_NET) != 0) {
+                return 17;
+            }
+            // +!goalKeep (line 63)
+            return 18;
+        case RUN_TO_BALL:
+            // +!runToBall : ball_seen & facing_ball & not at_ball (line 69)
+            if ((p & (BALL_SEEN | FACING_BALL | AT_BALL)) == (BALL_SEEN | FACING_BALL)) {
+                return 19;
+            }
+            // +!runToBall : ball_seen & penalty_seen & not at_ball (line 76)
+            // never chosen, as a belief it needs is never true
+            // +!runToBall : at_ball (line 82)
+            if ((p & AT_BALL) != 0) {
+                return 24;
+            }
+            // +!runToBall : not ball_seen | not facing_ball | not penalty_seen (line 87)
+            return 25;
+        case FINDBALL:
+            // +!findball : ball_seen & not facing_ball (line 93)
+            if ((p & (BALL_SEEN | FACING_BALL)) == BALL_SEEN) {
+                return 26;
+            }
+            // +!findball : ball_seen & facing_ball (line 99)
+            if ((p & (BALL_SEEN | FACING_BALL)) == (BALL_SEEN | FACING_BALL)) {
+                return 28;
+            }
+            // +!findball : not ball_seen (line 104)
+            if ((p & BALL_SEEN) == 0) {
+                return 30;
+            }
+            return NO_PLAN;
+        default:
+            return NO_PLAN;
+        }
+    }
+
+    @Override
+    protected int step(int state) {
+        switch (state) {
+        // +!goToOwnGoal : ball_seen & at_ball & enemy_goal_seen & testing (line 6)
+        case 1: return act(Intent.KICK_AT_NET, END);
+        // +!goToOwnGoal : at_own_net | was_at_own_net (line 12)
+        case 2: return believe(WAS_AT_OWN_NET, 3);
+        case 3: return achieve(GOAL_KEEP, END);
+        // +!goToOwnGoal : own_goal_seen & not facing_own_goal (line 17)
+        case 4: return act(Intent.TURN_TO_OWN_GOAL, 5);
+        case 5: return achieve(GO_TO_OWN_GOAL, END);
+        // +!goToOwnGoal : own_goal_seen & facing_own_goal (line 24)
+        case 6: return act(Intent.RUN_TO_OWN_GOAL, 7);
+        case 7: return achieve(GO_TO_OWN_GOAL, END);
+        // +!goToOwnGoal : not own_goal_seen (line 30)
+        case 8: return act(Intent.LOOK_RIGHT, 9);
+        case 9: return achieve(GO_TO_OWN_GOAL, END);
+        // +!goalKeep : at_ball & own_goal_seen (line 37)
+        case 10: return act(Intent.KICK_TO_DEFEND, 11);
+        case 11: return achieve(GO_TO_OWN_GOAL, END);
+        // +!goalKeep : at_ball & not own_goal_seen (line 43)
+        case 12: return act(Intent.KICK_STRAIGHT, 13);
+        case 13: return achieve(GO_TO_OWN_GOAL, END);
+        // +!goalKeep : ball_seen & not facing_ball & (at_own_net | was_at_own_net) (line 49)
+        case 14: return act(Intent.TURN_TO_BALL, 15);
+        case 15: return achieve(GOAL_KEEP, END);
+        // +!goalKeep : ball_seen & facing_ball & ball_med_dist_from_goalie & not at_ball & (at_own_net | was_at_own_net) (line 55)
+        case 16: return achieve(RUN_TO_BALL, END);
+        // +!goalKeep : at_own_net | was_at_own_net (line 59)
+        case 17: return achieve(FINDBALL, END);
+        // +!goalKeep (line 63)
+        case 18: return achieve(GO_TO_OWN_GOAL, END);
+        // +!runToBall : ball_seen & facing_ball & not at_ball (line 69)
+        case 19: return disbelieve(WAS_AT_OWN_NET, 20);
+        case 20: return act(Intent.RUN_TO_BALL, 21);
+        case 21: return achieve(RUN_TO_BALL, END);
+        // +!runToBall : ball_seen & penalty_seen & not at_ball (line 76)
+        case 22: return act(Intent.TURN_TO_BALL, 23);
+        case 23: return achieve(RUN_TO_BALL, END);
+        // +!runToBall : at_ball (line 82)
+        case 24: return achieve(GOAL_KEEP, END);
+        // +!runToBall : not ball_seen | not facing_ball | not penalty_seen (line 87)
+        case 25: return achieve(GO_TO_OWN_GOAL, END);
+        // +!findball : ball_seen & not facing_ball (line 93)
+        case 26: return act(Intent.TURN_TO_BALL, 27);
+        case 27: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & facing_ball (line 99)
+        case 28: return act(Intent.TURN_TO_BALL, 29);
+        case 29: return achieve(GOAL_KEEP, END);
+        // +!findball : not ball_seen (line 104)
+        case 30: return act(Intent.LOOK_LEFT, 31);
+        case 31: return achieve(FINDBALL, END);
+        default:
+            throw new IllegalStateException("no state " + state);
+        }
+    }
+}
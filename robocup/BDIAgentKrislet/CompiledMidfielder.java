@@ -0,0 +1,280 @@
+// Generated by AslCompiler from AgentSpecifications/midfielder.asl, do not edit.
+// Run AslCompiler again after changing the asl file.
+
+/**
+*   The plans of AgentSpecifications/midfielder.asl as a state machine, see CompiledAgent.
+*/
+final class CompiledMidfielder extends CompiledAgent {
+
+    static final String ASL = "AgentSpecifications/midfielder.asl";
+    static final long SOURCE_CRC = 0x9a32aec5L;
+
+    // Percepts
+    private static final long BALL_SEEN = Belief.BALL_SEEN.mask;
+    private static final long AT_BALL = Belief.AT_BALL.mask;
+    private static final long ENEMY_GOAL_SEEN = Belief.ENEMY_GOAL_SEEN.mask;
+    private static final long TESTING = Belief.TESTING.mask;
+    private static final long TEAMMATE_CLOSER_TO_BALL = Belief.TEAMMATE_CLOSER_TO_BALL.mask;
+    private static final long CLOSE_TO_CENTRE = Belief.CLOSE_TO_CENTRE.mask;
+    private static final long CENTRE_SEEN = Belief.CENTRE_SEEN.mask;
+    private static final long FACING_CENTRE = Belief.FACING_CENTRE.mask;
+    private static final long FACING_BALL = Belief.FACING_BALL.mask;
+    private static final long CENTRE_TO_LEFT = Belief.CENTRE_TO_LEFT.mask;
+    private static final long CENTRE_TO_RIGHT = Belief.CENTRE_TO_RIGHT.mask;
+    private static final long BALL_TO_LEFT = Belief.BALL_TO_LEFT.mask;
+    private static final long BALL_TO_RIGHT = Belief.BALL_TO_RIGHT.mask;
+    private static final long ENEMY_GOAL_TO_LEFT = Belief.ENEMY_GOAL_TO_LEFT.mask;
+    private static final long ENEMY_GOAL_TO_RIGHT = Belief.ENEMY_GOAL_TO_RIGHT.mask;
+
+    // Mental notes
+    private static final long WAS_CLOSE_TO_CENTRE = 1L << 0;
+    private static final long CENTRE_WAS_LEFT = 1L << 1;
+    private static final long BALL_WAS_LEFT = 1L << 2;
+    private static final long ENEMY_GOAL_WAS_LEFT = 1L << 3;
+
+    // Goals
+    private static final int FINDBALL = 0;
+    private static final int REMEBERBALLDIRECTION = 1;
+    private static final int REMEBERGOALDIRECTION = 2;
+    private static final int REMEBERCENTREDIRECTION = 3;
+    private static final int MOVETOMID = 4;
+    private static final int GOTOBALL = 5;
+    private static final int MONITORBALL = 6;
+    private static final int SHOOT = 7;
+    private static final int FINDENEMYGOAL = 8;
+
+    private static final String[] GOAL_NAMES = {"findball", "remeberballdirection", "remebergoaldirection", "remebercentredirection", "movetomid", "gotoball", "monitorball", "shoot", "findenemygoal"};
+
+    CompiledMidfielder() {
+        super(ASL, SOURCE_CRC, GOAL_NAMES, FINDBALL, 0L);
+    }
+
+    @Override
+    protected int select(int goal, long p, long n) {
+        switch (goal) {
+        case FINDBALL:
+            // +!findball : ball_seen & at_ball & enemy_goal_seen & testing (line 5)
+            if ((p & (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) == (BALL_SEEN | AT_BALL | ENEMY_GOAL_SEEN | TESTING)) {
+                return 1;
+            }
+            // +!findball : not ball_seen & ball_was_left (line 12)
+            if ((p & BALL_SEEN) == 0 && (n & BALL_WAS_LEFT) != 0) {
+                return 2;
+            }
+            // +!findball : not ball_seen (line 17)
+            if ((p & BALL_SEEN) == 0) {
+                return 4;
+            }
+            // +!findball : ball_seen & teammate_closer_to_ball (line 22)
+            if ((p & (BALL_SEEN | TEAMMATE_CLOSER_TO_BALL)) == (BALL_SEEN | TEAMMATE_CLOSER_TO_BALL)) {
+                return 6;
+            }
+            // +!findball : ball_seen & not teammate_closer_to_ball (line 29)
+            if ((p & (BALL_SEEN | TEAMMATE_CLOSER_TO_BALL)) == BALL_SEEN) {
+                return 10;
+            }
+            return NO_PLAN;
+        case REMEBERBALLDIRECTION:
+            // +!remeberballdirection : ball_to_left (line 134)
+            if ((p & BALL_TO_LEFT) != 0) {
+                return 50;
+            }
+            // +!remeberballdirection : ball_to_right (line 138)
+            if ((p & BALL_TO_RIGHT) != 0) {
+                return 51;
+            }
+            // +!remeberballdirection (line 141)
+            return 0;
+        case REMEBERGOALDIRECTION:
+            // +!remebergoaldirection : enemy_goal_to_left (line 144)
+            if ((p & ENEMY_GOAL_TO_LEFT) != 0) {
+                return 52;
+            }
+            // +!remebergoaldirection : enemy_goal_to_right (line 148)
+            if ((p & ENEMY_GOAL_TO_RIGHT) != 0) {
+                return 53;
+            }
+            // +!remebergoaldirection (line 151)
+            return 0;
+        case REMEBERCENTREDIRECTION:
+            // +!remebercentredirection : centre_to_left (line 124)
+            if ((p & CENTRE_TO_LEFT) != 0) {
+                return 48;
+            }
+            // +!remebercentredirection : centre_to_right (line 128)
+            if ((p & CENTRE_TO_RIGHT) != 0) {
+                return 49;
+            }
+            // +!remebercentredirection (line 131)
+            return 0;
+        case MOVETOMID:
+            // +!movetomid : close_to_centre | was_close_to_centre (line 44)
+            if ((p & CLOSE_TO_CENTRE) != 0 || (n & WAS_CLOSE_TO_CENTRE) != 0) {
+                return 15;
+            }
+            // +!movetomid : not close_to_centre & not centre_seen & centre_was_left (line 50)
+            if ((p & (CLOSE_TO_CENTRE | CENTRE_SEEN)) == 0 && (n & CENTRE_WAS_LEFT) != 0) {
+                return 18;
+            }
+            // +!movetomid : not close_to_centre & not centre_seen (line 55)
+            if ((p & (CLOSE_TO_CENTRE | CENTRE_SEEN)) == 0) {
+                return 20;
+            }
+            // +!movetomid : not close_to_centre & centre_seen & not facing_centre (line 60)
+            if ((p & (CLOSE_TO_CENTRE | CENTRE_SEEN | FACING_CENTRE)) == CENTRE_SEEN) {
+                return 22;
+            }
+            // +!movetomid : not close_to_centre & centre_seen & facing_centre (line 65)
+            if ((p & (CLOSE_TO_CENTRE | CENTRE_SEEN | FACING_CENTRE)) == (CENTRE_SEEN | FACING_CENTRE)) {
+                return 24;
+            }
+            return NO_PLAN;
+        case GOTOBALL:
+            // +!gotoball : not at_ball & not ball_seen (line 70)
+            if ((p & (AT_BALL | BALL_SEEN)) == 0) {
+                return 26;
+            }
+            // +!gotoball : not at_ball & ball_seen & not facing_ball (line 74)
+            if ((p & (AT_BALL | BALL_SEEN | FACING_BALL)) == BALL_SEEN) {
+                return 27;
+            }
+            // +!gotoball : not at_ball & ball_seen & facing_ball (line 82)
+            if ((p & (AT_BALL | BALL_SEEN | FACING_BALL)) == (BALL_SEEN | FACING_BALL)) {
+                return 32;
+            }
+            // +!gotoball : at_ball (line 91)
+            if ((p & AT_BALL) != 0) {
+                return 38;
+            }
+            return NO_PLAN;
+        case MONITORBALL:
+            // +!monitorball : ball_seen (line 36)
+            if ((p & BALL_SEEN) != 0) {
+                return 14;
+            }
+            // +!monitorball : not ball_seen (line 40)
+            if ((p & BALL_SEEN) == 0) {
+                return 0;
+            }
+            return NO_PLAN;
+        case SHOOT:
+            // +!shoot : not at_ball (line 95)
+            if ((p & AT_BALL) == 0) {
+                return 39;
+            }
+            // +!shoot : enemy_goal_seen (line 99)
+            if ((p & ENEMY_GOAL_SEEN) != 0) {
+                return 40;
+            }
+            // +!shoot : not enemy_goal_seen (line 104)
+            if ((p & ENEMY_GOAL_SEEN) == 0) {
+                return 42;
+            }
+            return NO_PLAN;
+        case FINDENEMYGOAL:
+            // +!findenemygoal : not enemy_goal_seen & enemy_goal_was_left (line 108)
+            if ((p & ENEMY_GOAL_SEEN) == 0 && (n & ENEMY_GOAL_WAS_LEFT) != 0) {
+                return 43;
+            }
+            // +!findenemygoal : not enemy_goal_seen (line 113)
+            if ((p & ENEMY_GOAL_SEEN) == 0) {
+                return 45;
+            }
+            // +!findenemygoal : enemy_goal_seen (line 118)
+            if ((p & ENEMY_GOAL_SEEN) != 0) {
+                return 47;
+            }
+            return NO_PLAN;
+        default:
+            return NO_PLAN;
+        }
+    }
+
+    @Override
+    protected int step(int state) {
+        switch (state) {
+        // +!findball : ball_seen & at_ball & enemy_goal_seen & testing (line 5)
+        case 1: return act(Intent.KICK_AT_NET, END);
+        // +!findball : not ball_seen & ball_was_left (line 12)
+        case 2: return act(Intent.LOOK_LEFT, 3);
+        case 3: return achieve(FINDBALL, END);
+        // +!findball : not ball_seen (line 17)
+        case 4: return act(Intent.LOOK_RIGHT, 5);
+        case 5: return achieve(FINDBALL, END);
+        // +!findball : ball_seen & teammate_closer_to_ball (line 22)
+        case 6: return achieve(REMEBERBALLDIRECTION, 7);
+        case 7: return achieve(REMEBERGOALDIRECTION, 8);
+        case 8: return achieve(REMEBERCENTREDIRECTION, 9);
+        case 9: return achieve(MOVETOMID, END);
+        // +!findball : ball_seen & not teammate_closer_to_ball (line 29)
+        case 10: return achieve(REMEBERBALLDIRECTION, 11);
+        case 11: return achieve(REMEBERGOALDIRECTION, 12);
+        case 12: return achieve(REMEBERCENTREDIRECTION, 13);
+        case 13: return achieve(GOTOBALL, END);
+        // +!monitorball : ball_seen (line 36)
+        case 14: return act(Intent.TURN_TO_BALL, END);
+        // +!movetomid : close_to_centre | was_close_to_centre (line 44)
+        case 15: return believe(WAS_CLOSE_TO_CENTRE, 16);
+        case 16: return achieve(MONITORBALL, 17);
+        case 17: return achieve(FINDBALL, END);
+        // +!movetomid : not close_to_centre & not centre_seen & centre_was_left (line 50)
+        case 18: return act(Intent.LOOK_LEFT, 19);
+        case 19: return achieve(MOVETOMID, END);
+        // +!movetomid : not close_to_centre & not centre_seen (line 55)
+        case 20: return act(Intent.LOOK_RIGHT, 21);
+        case 21: return achieve(MOVETOMID, END);
+        // +!movetomid : not close_to_centre & centre_seen & not facing_centre (line 60)
+        case 22: return act(Intent.TURN_TO_CENTRE, 23);
+        case 23: return achieve(MOVETOMID, END);
+        // +!movetomid : not close_to_centre & centre_seen & facing_centre (line 65)
+        case 24: return act(Intent.RUN_TO_CENTRE, 25);
+        case 25: return achieve(FINDBALL, END);
+        // +!gotoball : not at_ball & not ball_seen (line 70)
+        case 26: return achieve(FINDBALL, END);
+        // +!gotoball : not at_ball & ball_seen & not facing_ball (line 74)
+        case 27: return act(Intent.TURN_TO_BALL, 28);
+        case 28: return achieve(REMEBERBALLDIRECTION, 29);
+        case 29: return achieve(REMEBERGOALDIRECTION, 30);
+        case 30: return achieve(REMEBERCENTREDIRECTION, 31);
+        case 31: return achieve(GOTOBALL, END);
+        // +!gotoball : not at_ball & ball_seen & facing_ball (line 82)
+        case 32: return disbelieve(WAS_CLOSE_TO_CENTRE, 33);
+        case 33: return act(Intent.RUN_TO_BALL, 34);
+        case 34: return achieve(REMEBERBALLDIRECTION, 35);
+        case 35: return achieve(REMEBERGOALDIRECTION, 36);
+        case 36: return achieve(REMEBERCENTREDIRECTION, 37);
+        case 37: return achieve(FINDBALL, END);
+        // +!gotoball : at_ball (line 91)
+        case 38: return achieve(SHOOT, END);
+        // +!shoot : not at_ball (line 95)
+        case 39: return achieve(FINDBALL, END);
+        // +!shoot : enemy_goal_seen (line 99)
+        case 40: return act(Intent.KICK_AT_NET, 41);
+        case 41: return achieve(FINDBALL, END);
+        // +!shoot : not enemy_goal_seen (line 104)
+        case 42: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : not enemy_goal_seen & enemy_goal_was_left (line 108)
+        case 43: return act(Intent.LOOK_LEFT, 44);
+        case 44: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : not enemy_goal_seen (line 113)
+        case 45: return act(Intent.LOOK_RIGHT, 46);
+        case 46: return achieve(FINDENEMYGOAL, END);
+        // +!findenemygoal : enemy_goal_seen (line 118)
+        case 47: return achieve(SHOOT, END);
+        // +!remebercentredirection : centre_to_left (line 124)
+        case 48: return believe(CENTRE_WAS_LEFT, END);
+        // +!remebercentredirection : centre_to_right (line 128)
+        case 49: return disbelieve(CENTRE_WAS_LEFT, END);
+        // +!remeberballdirection : ball_to_left (line 134)
+        case 50: return believe(BALL_WAS_LEFT, END);
+        // +!remeberballdirection : ball_to_right (line 138)
+        case 51: return disbelieve(BALL_WAS_LEFT, END);
+        // +!remebergoaldirection : enemy_goal_to_left (line 144)
+        case 52: return believe(ENEMY_GOAL_WAS_LEFT, END);
+        // +!remebergoaldirection : enemy_goal_to_right (line 148)
+        case 53: return disbelieve(ENEMY_GOAL_WAS_LEFT, END);
+        default:
+            throw new IllegalStateException("no state " + state);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+*   Keeps a player in step with the server's simulation cycles.
+*
+*   The server starts a new cycle every SoccerParams.simulator_step ms, and
+*   a see message carries the cycle it was sent in. Each see therefore gives
+*   an upper bound for the local time at which cycle 0 started:
+*   arrival - time * step. The scheduler takes the lowest bound seen, lets it
+*   creep forward slowly so that clock drift is followed, and from it works
+*   out when each cycle begins.
+*
+*   While play is stopped, e.g. before kick off, the server keeps stepping
+*   at the same pace but does not count: every message carries the same
+*   time. Those messages say nothing new about when cycles start, and the
+*   bound they give grows by a step each cycle, so they are not used. Once
+*   the time moves on again, the cycles that went uncounted are added to
+*   every later time. The scheduler therefore numbers the cycles the server
+*   has run, which run ahead of its time by the cycles play was stopped.
+*
+*   awaitNextCycle() wakes the brain at a fixed offset into the next cycle it
+*   has not acted in yet, and commandSent() records which cycle each body
+*   command fell into, so that commands per cycle (ideally exactly one) can
+*   be reported. Until the first see arrives the scheduler just sleeps one
+*   step, as Brain used to.
+*
+*   In synchronous mode the server does not keep time at all: it sends
+*   (think) when a cycle starts and moves on once every player has answered
+*   (done). awaitNextCycle() then simply waits for the next (think).
+*
+*   Those counts rest on the local estimate of when cycles start. The
+*   server's own view comes with each sense_body: it is sent as a cycle
+*   starts and counts the body commands carried out so far. senseBody()
+*   compares that with the commands sent since the previous one, which
+*   tells cycles in which nothing was done, commands the server dropped
+*   because their cycle already had one, and commands that arrived after
+*   the cycle they were sent for and were carried out in the next one.
+*/
+class CycleScheduler
+{
+    // How far the estimated start of cycle 0 may move later per see
+    // message, so that a clock running slower than the server's is followed
+    private static final long CREEP = 100000;	// ns
+
+    // How long awaitNextCycle() waits for a (think) in synchronous mode
+    // before giving the caller a chance to notice the game has ended
+    private static final long THINK_TIMEOUT = 1000;	// ms
+
+    private final long m_step;
+    private long m_offset;
+
+    private volatile boolean m_synchronized;
+    private volatile long m_base;		// local time cycle 0 started, in ns
+    private int m_baseTime = -1;		// latest time that moved m_base
+    private long m_uncounted;			// cycles the server ran while play was stopped
+    private boolean m_stopped;			// m_baseTime seen in a later cycle
+    private long m_actedCycle = -1;		// last cycle awaitNextCycle() returned
+
+    private volatile boolean m_synchronous;	// server in synchronous mode
+    private volatile long m_thinkCycle;		// (think) messages received
+    private final Semaphore m_thinks = new Semaphore(0);
+
+    // Command statistics, updated by the thread that sends commands
+    private volatile long m_commands;
+    private volatile long m_extraCommands;	// commands beyond the first in a cycle
+    private volatile long m_firstCycle = -1;
+    private volatile long m_lastCycle = -1;
+    private volatile long m_cyclesWithCommand;
+    private long m_lateWakeups;			// returns after the offset point had passed
+
+    // Server time and what it reports doing, updated by the receiving thread
+    private volatile int m_serverTime = -1;	// latest cycle a see or sense_body was sent in
+    private long m_senseCycle = -1;		// cycle of the previous sense_body
+    private long m_senseExecuted;		// body commands carried out by then
+    private long m_senseCommands;		// and sent by then
+    private long m_pending;			// sent before it, maybe arriving late
+    private volatile long m_idleCycles;
+    private volatile long m_duplicateCommands;
+    private volatile long m_lateCommands;
+
+    /**
+     * @brief Creates a scheduler for the default step and offset.
+     */
+    public CycleScheduler()
+    {
+	this(SoccerParams.simulator_step, SoccerParams.cycle_offset);
+    }
+
+    /**
+     * @param stepMillis   Length of a server cycle.
+     * @param offsetMillis How far into each cycle to wake the brain.
+     */
+    public CycleScheduler(int stepMillis, int offsetMillis)
+    {
+	m_step = stepMillis * 1000000L;
+	m_offset = offsetMillis * 1000000L;
+    }
+
+    public void setOffset(int offsetMillis)
+    {
+	m_offset = offsetMillis * 1000000L;
+    }
+
+    /**
+     * @brief Switches to synchronous mode, in which cycles start with (think).
+     */
+    public void setSynchronous(boolean synchronous)
+    {
+	m_synchronous = synchronous;
+    }
+
+    public boolean isSynchronous()
+    {
+	return m_synchronous;
+    }
+
+    /**
+     * @brief Records a (think) message, the start of a cycle in synchronous mode.
+     */
+    public void think()
+    {
+	m_thinkCycle ++;
+	m_thinks.release();
+    }
+
+    /**
+     * @brief Records the arrival of a see message.
+     * @param time    Server cycle the message was sent in (VisualInfo.getTime()).
+     * @param arrival System.nanoTime() when the message was received.
+     */
+    public void observe(int time, long arrival)
+    {
+	if(time > m_serverTime)
+	    m_serverTime = time;
+	if(!m_synchronized)
+	    {
+		m_base = arrival - time * m_step;
+		m_baseTime = time;
+		m_synchronized = true;
+		return;
+	    }
+	if(time < m_baseTime)
+	    return;			// out of order
+	if(time == m_baseTime && cycleAt(arrival) > time + m_uncounted)
+	    {
+		// The same time a cycle later: play is stopped
+		m_stopped = true;
+		return;
+	    }
+	if(time > m_baseTime)
+	    {
+		if(m_stopped)
+		    m_uncounted = nearestCycle(arrival) - time;
+		m_baseTime = time;
+		m_stopped = false;
+	    }
+	m_base = Math.min(arrival - (time + m_uncounted) * m_step, m_base + CREEP);
+    }
+
+    /**
+     * @brief Sleeps until the offset point of the next cycle this method has
+     * not returned for yet. If that point has passed already the call
+     * returns at once.
+     * In synchronous mode, waits for the next (think) instead. Thinks that
+     * arrived while the caller was busy count as one.
+     * @return The estimated cycle (see cycleAt()), or -1 before the first
+     * see or if no (think) arrived in synchronous mode.
+     */
+    public long awaitNextCycle()
+    {
+	if(m_synchronous)
+	    {
+		try{
+		    if(!m_thinks.tryAcquire(THINK_TIMEOUT, TimeUnit.MILLISECONDS))
+			return -1;
+		}catch(InterruptedException e){
+		    return -1;
+		}
+		m_thinks.drainPermits();
+		return m_thinkCycle;
+	    }
+	if(!m_synchronized)
+	    {
+		sleepNanos(m_step);
+		return -1;
+	    }
+
+	long now = System.nanoTime();
+	long cycle = Math.max(cycleAt(now), m_actedCycle + 1);
+	long wakeup = m_base + cycle * m_step + m_offset;
+	if(wakeup > now)
+	    sleepNanos(wakeup - now);
+	else
+	    m_lateWakeups++;
+	m_actedCycle = cycle;
+	return cycle;
+    }
+
+    /**
+     * @brief Records a body command (move, turn, dash, kick) being sent.
+     */
+    public void commandSent()
+    {
+	m_commands++;
+	if(!m_synchronized && !m_synchronous)
+	    return;
+	long cycle = m_synchronous ? m_thinkCycle : cycleAt(System.nanoTime());
+	if(cycle == m_lastCycle)
+	    {
+		m_extraCommands++;
+		return;
+	    }
+	if(m_firstCycle < 0)
+	    m_firstCycle = cycle;
+	m_lastCycle = Math.max(m_lastCycle, cycle);
+	m_cyclesWithCommand++;
+    }
+
+    /**
+     * @brief Records a sense_body message and settles the commands sent
+     * since the previous one against those the server carried out.
+     * The server carries out at most one body command per cycle, the
+     * first to arrive in it. Commands sent since the previous sense_body
+     * beyond those carried out were dropped if every cycle was busy. If a
+     * cycle was idle they were probably late instead, so they stay
+     * outstanding: the next cycle carries them out first and they count as
+     * late, and any left after that were dropped.
+     * @param time     Server cycle the message was sent in.
+     * @param arrival  System.nanoTime() when the message was received.
+     * @param executed Body commands (kick, dash, turn, move, catch) it counts.
+     */
+    public void senseBody(int time, long arrival, long executed)
+    {
+	// sense_body goes out as its cycle starts, so it bounds the start of
+	// cycle 0 at least as well as a see
+	observe(time, arrival);
+	// While play is stopped only the arrival tells the cycles apart
+	long cycle = m_synchronous ? time : nearestCycle(arrival);
+	if(cycle <= m_senseCycle)
+	    return;			// repeated or out of order
+	long commands = m_commands;
+	// Cycles only count from the last sense_body before the first command,
+	// not while the player is still starting up
+	if(m_senseCycle >= 0 && commands > 0)
+	    {
+		long done = executed - m_senseExecuted;
+		long idle = Math.max(0, cycle - m_senseCycle - done);
+		long late = Math.min(m_pending, done);
+		long surplus = Math.max(0, commands - m_senseCommands - (done - late));
+		m_lateCommands += late;
+		m_duplicateCommands += m_pending - late;
+		m_idleCycles += idle;
+		// Commands left over with every cycle busy were dropped; with
+		// an idle cycle they may just not have arrived in time
+		m_pending = idle > 0 ? surplus : 0;
+		m_duplicateCommands += surplus - m_pending;
+	    }
+	m_senseCycle = cycle;
+	m_senseExecuted = executed;
+	m_senseCommands = commands;
+    }
+
+    /**
+     * @brief The latest server cycle a see or sense_body was sent in, or -1.
+     */
+    public int getServerTime()
+    {
+	return m_serverTime;
+    }
+
+    /**
+     * @brief Cycles, as the server reports them in sense_body, in which it
+     * carried out no body command.
+     */
+    public long getIdleCycleCount()
+    {
+	return m_idleCycles;
+    }
+
+    /**
+     * @brief Commands the server reports never having carried out, as they
+     * arrived in a cycle that already had one.
+     */
+    public long getDuplicateCommandCount()
+    {
+	return m_duplicateCommands;
+    }
+
+    /**
+     * @brief Commands the server carried out a cycle after the one they were
+     * sent in, because they reached it after that cycle had ended.
+     */
+    public long getLateCommandCount()
+    {
+	return m_lateCommands;
+    }
+
+    /**
+     * @brief The server cycle in progress at a local time, counting the
+     * cycles in which play was stopped.
+     */
+    public long cycleAt(long nanoTime)
+    {
+	return Math.floorDiv(nanoTime - m_base, m_step);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the cycle whose start is nearest to a local time,
+    // that of a message sent as a cycle starts
+    private long nearestCycle(long nanoTime)
+    {
+	return Math.floorDiv(nanoTime - m_base + m_step / 2, m_step);
+    }
+
+    public long getCommandCount()
+    {
+	return m_commands;
+    }
+
+    /**
+     * @brief Commands sent in a cycle that already had one. The server only
+     * carries out one body command per cycle.
+     */
+    public long getExtraCommandCount()
+    {
+	return m_extraCommands;
+    }
+
+    /**
+     * @brief Cycles between the first and the last command that had none.
+     */
+    public long getMissedCycleCount()
+    {
+	return m_firstCycle < 0 ? 0 : m_lastCycle - m_firstCycle + 1 - m_cyclesWithCommand;
+    }
+
+    /**
+     * @brief Commands per cycle from the first to the last command.
+     */
+    public double getCommandsPerCycle()
+    {
+	long cycles = m_lastCycle - m_firstCycle + 1;
+	return m_firstCycle < 0 ? 0 : (double)(m_cyclesWithCommand + m_extraCommands) / cycles;
+    }
+
+    /**
+     * @brief Calls to awaitNextCycle() made after the offset point of the
+     * cycle, e.g. because the previous decision ran long, so the command went
+     * out later in the cycle than intended.
+     */
+    public long getLateWakeupCount()
+    {
+	return m_lateWakeups;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function sleeps for at least the given time
+    private static void sleepNanos(long nanos)
+    {
+	long deadline = System.nanoTime() + nanos;
+	for(long left = nanos ; left > 0 ; left = deadline - System.nanoTime())
+	    LockSupport.parkNanos(left);
+    }
+}
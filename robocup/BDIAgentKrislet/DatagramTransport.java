@@ -0,0 +1,202 @@
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+*   UDP transport between a player and the RoboCup server.
+*
+*   The transport is built on a DatagramChannel. Received messages land in one
+*   direct buffer that is allocated once and are decoded into one reused
+*   character buffer, and commands are sent from whatever buffer the caller
+*   encoded them into (see CommandEncoder), so neither path allocates a
+*   packet, a byte array or a String. Only the bytes of the message itself
+*   go on the wire.
+*
+*   A received message is therefore only valid until the next one is
+*   received; a caller that keeps it has to copy it with toString().
+*
+*   A transport is either read by its own thread with receive(), which
+*   blocks, or registered with a Selector that serves many players, in which
+*   case poll() hands over whatever has arrived without blocking.
+*/
+class DatagramTransport
+{
+    private final DatagramChannel m_channel;
+    private final ByteBuffer m_receiveBuffer;
+    private final byte[] m_receiveBytes;
+    private final Message m_message;
+    private SocketAddress m_server;
+    private SocketAddress m_lastSender;
+
+    // Receive counters, only updated by the thread that reads the channel
+    private long m_receivedMessages;
+    private long m_receivedBytes;
+
+    /**
+     * @brief Opens an unbound channel that will talk to the server at host:port.
+     * @param host  Address of the RoboCup server.
+     * @param port  Port the server listens on for new players.
+     * @param size  Size of the receive buffer in bytes.
+     */
+    public DatagramTransport(InetAddress host, int port, int size)
+	throws IOException
+    {
+	m_channel = DatagramChannel.open();
+	m_channel.bind(null);
+	m_server = new InetSocketAddress(host, port);
+	m_receiveBuffer = ByteBuffer.allocateDirect(size);
+	m_receiveBytes = new byte[size];
+	m_message = new Message(size);
+    }
+
+    /**
+     * @brief Sends an encoded command to the server.
+     * @param command Buffer holding exactly the bytes to send, as returned by
+     * CommandEncoder.end().
+     */
+    public synchronized void send(ByteBuffer command)
+	throws IOException
+    {
+	m_channel.send(command, m_server);
+    }
+
+    /**
+     * @brief Blocks until the next message arrives from the server.
+     * @return The message text, with the trailing NUL the server appends
+     * removed, valid until the next receive() or poll().
+     */
+    public CharSequence receive()
+	throws IOException
+    {
+	m_receiveBuffer.clear();
+	m_lastSender = m_channel.receive(m_receiveBuffer);
+	return decode();
+    }
+
+    /**
+     * @brief Returns the next message if one has arrived, without blocking.
+     * @details Only for a transport that has been registered with a selector.
+     * @return The message text, valid until the next receive() or poll(), or
+     * null if there is none.
+     */
+    public CharSequence poll()
+	throws IOException
+    {
+	m_receiveBuffer.clear();
+	SocketAddress sender = m_channel.receive(m_receiveBuffer);
+	if(sender == null)
+	    return null;
+	m_lastSender = sender;
+	return decode();
+    }
+
+    /**
+     * @brief Switches the channel to non-blocking mode and registers it for
+     * reading with a selector.
+     * @param attachment Object to attach to the selection key.
+     */
+    public SelectionKey register(Selector selector, Object attachment)
+	throws IOException
+    {
+	m_channel.configureBlocking(false);
+	return m_channel.register(selector, SelectionKey.OP_READ, attachment);
+    }
+
+    /**
+     * @brief The key of the channel's registration with a selector, or null
+     * if it is not registered with it.
+     */
+    public SelectionKey keyFor(Selector selector)
+    {
+	return m_channel.keyFor(selector);
+    }
+
+    /** @brief Number of messages received so far. */
+    public long getReceivedMessages()
+    {
+	return m_receivedMessages;
+    }
+
+    /** @brief Number of bytes received so far, as sent by the server. */
+    public long getReceivedBytes()
+    {
+	return m_receivedBytes;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function turns the datagram in the receive buffer into text, one
+    // character per byte as ISO-8859-1 does
+    private CharSequence decode()
+    {
+	m_receiveBuffer.flip();
+	int length = m_receiveBuffer.remaining();
+	m_receivedMessages ++;
+	m_receivedBytes += length;
+	m_receiveBuffer.get(m_receiveBytes, 0, length);
+	while(length > 0 && m_receiveBytes[length - 1] == 0)
+	    length --;
+	char[] chars = m_message.m_chars;
+	for(int c = 0 ; c < length ; c ++)
+	    chars[c] = (char)(m_receiveBytes[c] & 0xff);
+	m_message.m_length = length;
+	return m_message;
+    }
+
+    /**
+     * @brief Directs every following send to the address the last message came from.
+     * @details The server answers (init) from a dedicated port for the player,
+     * and all further commands have to go to that port.
+     */
+    public synchronized void replyToLastSender()
+    {
+	if(m_lastSender != null)
+	    m_server = m_lastSender;
+    }
+
+    public void close()
+    {
+	try{
+	    m_channel.close();
+	}catch(IOException e){
+	}
+    }
+
+    //---------------------------------------------------------------------------
+    // The text of the last message received. Unlike a CharBuffer it reads its
+    // array directly, which keeps the parsers as fast as on a String.
+    private static final class Message implements CharSequence
+    {
+	final char[] m_chars;
+	int m_length;
+
+	Message(int size)
+	{
+	    m_chars = new char[size];
+	}
+
+	public int length()
+	{
+	    return m_length;
+	}
+
+	public char charAt(int index)
+	{
+	    if(index >= m_length)
+		throw new StringIndexOutOfBoundsException(index);
+	    return m_chars[index];
+	}
+
+	public CharSequence subSequence(int start, int end)
+	{
+	    if(start < 0 || start > end || end > m_length)
+		throw new StringIndexOutOfBoundsException(start);
+	    return new String(m_chars, start, end - start);
+	}
+
+	public String toString()
+	{
+	    return new String(m_chars, 0, m_length);
+	}
+    }
+}
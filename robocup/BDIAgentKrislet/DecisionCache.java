@@ -0,0 +1,114 @@
+import java.util.*;
+
+/**
+*   Remembers the decisions a JasonAgent made that left it as it was.
+*
+*   Plans like
+*
+*       +!findball : not ball_seen <- look_right; !findball.
+*
+*   come back to the intention they started from every cycle that their
+*   context holds. Such decisions are cached, keyed by the state of the
+*   intention (see IntentionStates), the perceptions that state depends on
+*   and the mental notes, and the agent returns the cached intent without
+*   reasoning; as the decision would have left it where it was, skipping it
+*   changes nothing.
+*
+*   Decisions that move the intention on or change a note are never cached,
+*   and neither are those from intentions IntentionStates cannot number.
+*/
+class DecisionCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Intent> decisions;
+    private final Key probe = new Key();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long bypasses = 0;
+
+    /**
+    *   @param capacity Most decisions to keep; the least recently used go first.
+    */
+    public DecisionCache(int capacity) {
+        this.capacity = capacity;
+        this.decisions = new LinkedHashMap<Key, Intent>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Intent> eldest) {
+                return size() > DecisionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+    *   @param perceptions BeliefSet of the perceptions the state depends on.
+    *   @return The intent decided on in a state with the given perceptions
+    *   and notes, or null if it is not cached.
+    */
+    public Intent get(int state, long perceptions, long notes) {
+        Intent intent = decisions.get(probe.set(state, perceptions, notes));
+        if (intent != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return intent;
+    }
+
+    /**
+    *   Records a decision, if it left the intention and the notes as they were.
+    *   @param before      State of the intention before the decision.
+    *   @param after       State of the intention after it.
+    */
+    public void put(int before, long perceptions, long notesBefore, Intent intent, int after, long notesAfter) {
+        if (before == IntentionStates.UNKNOWN || before != after || notesBefore != notesAfter) {
+            bypasses++;
+            return;
+        }
+        decisions.put(new Key().set(before, perceptions, notesBefore), intent);
+    }
+
+    /** @return The decisions answered from the cache. */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /** @return The decisions looked up but not found. */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /** @return The decisions that could not be cached as they changed the agent's state. */
+    public long getBypassCount() {
+        return bypasses;
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    /** A state, perceptions and notes. */
+    private static final class Key {
+        int state;
+        long perceptions;
+        long notes;
+
+        Key set(int state, long perceptions, long notes) {
+            this.state = state;
+            this.perceptions = perceptions;
+            this.notes = notes;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            Key k = (Key)o;
+            return state == k.state && perceptions == k.perceptions && notes == k.notes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(perceptions * 31 + notes) * 31 + state;
+        }
+    }
+}
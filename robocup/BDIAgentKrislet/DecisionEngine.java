@@ -0,0 +1,68 @@
+/**
+*   Chooses the Intent a player performs each cycle from that cycle's
+*   perceptions, following the plans of an asl file.
+*
+*   JasonAgent interprets the file with Jason. A CompiledAgent runs Java code
+*   generated from the file by AslCompiler, which reaches the same decisions
+*   without Jason's overhead.
+*/
+public interface DecisionEngine {
+
+    /** Decision budget that never runs out. */
+    long NO_DECISION_BUDGET = Long.MAX_VALUE / 1000000L;
+
+    /**
+    *   What getIntent() returns when the engine has not acted within the
+    *   decision budget or the reasoning cycle limit.
+    */
+    enum Fallback {
+        /** The intent of the last action chosen, or WAIT before the first. */
+        LAST_INTENT,
+        WAIT
+    }
+
+    /**
+    *   Reasons about a cycle's perceptions until the plans choose an action.
+    *   @param perceptions BeliefSet of the cycle's perceptions.
+    *   @return The intent to perform this cycle.
+    */
+    Intent getIntent(long perceptions);
+
+    /**
+    *   @param millis Longest getIntent() may reason before it falls back,
+    *   or NO_DECISION_BUDGET.
+    */
+    void setDecisionBudget(long millis);
+
+    /**
+    *   @param limit Most reasoning cycles getIntent() may run before it falls back.
+    */
+    void setReasoningCycleLimit(int limit);
+
+    void setFallback(Fallback fallback);
+
+    /**
+    *   @return BeliefSet of the perceptions the last decision depended on:
+    *   until one of them changes, deciding again would choose the same
+    *   intent. BeliefSet.ALL when the engine cannot tell.
+    */
+    long getRelevantBeliefs();
+
+    /** @return The number of getIntent() calls. */
+    long getDecisionCount();
+
+    /** @return The reasoning cycles run by the last decision. */
+    int getLastDecisionCycles();
+
+    /** @return The reasoning cycles run by all decisions. */
+    long getTotalDecisionCycles();
+
+    /** @return The most reasoning cycles any single decision ran. */
+    int getMostDecisionCycles();
+
+    /** @return The decisions that ran out of time and fell back. */
+    long getOverrunCount();
+
+    /** @return The decisions that reached the reasoning cycle limit and fell back. */
+    long getCycleLimitCount();
+}
@@ -0,0 +1,70 @@
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+*   Single-slot handoff of the latest value from one thread to another.
+*
+*   put() replaces whatever the slot holds, so the consumer always gets the
+*   freshest value and never works through a backlog. Neither side takes a
+*   lock: the slot is an AtomicLong and a waiting consumer is parked and
+*   unparked directly. Values are longs, so a handoff every cycle does not
+*   box one; they must not be negative, as EMPTY marks an empty slot. Meant
+*   for one producer and one consumer.
+*/
+class Handoff
+{
+    /** What poll() and take() return when there is no value. */
+    public static final long EMPTY = -1;
+
+    private final AtomicLong m_slot = new AtomicLong(EMPTY);
+    private volatile Thread m_waiter;
+
+    /**
+     * @brief Publishes a value, replacing one that has not been taken yet.
+     * @param value Not negative.
+     * @return True if a value was replaced without ever being taken.
+     */
+    public boolean put(long value)
+    {
+	long replaced = m_slot.getAndSet(value);
+	Thread waiter = m_waiter;
+	if(waiter != null)
+	    LockSupport.unpark(waiter);
+	return replaced != EMPTY;
+    }
+
+    /**
+     * @brief Takes the value in the slot without waiting.
+     * @return The value, or EMPTY if the slot is empty.
+     */
+    public long poll()
+    {
+	return m_slot.getAndSet(EMPTY);
+    }
+
+    /**
+     * @brief Takes the value in the slot, waiting for one until the deadline.
+     * @param deadline Time as given by System.nanoTime() to give up at.
+     * @return The value, or EMPTY if none was put before the deadline.
+     */
+    public long take(long deadline)
+    {
+	long value = poll();
+	if(value != EMPTY)
+	    return value;
+
+	m_waiter = Thread.currentThread();
+	try{
+	    while((value = poll()) == EMPTY)
+		{
+		    long left = deadline - System.nanoTime();
+		    if(left <= 0)
+			break;
+		    LockSupport.parkNanos(this, left);
+		}
+	}finally{
+	    m_waiter = null;
+	}
+	return value;
+    }
+}
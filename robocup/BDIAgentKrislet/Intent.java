@@ -1,3 +1,5 @@
+import java.util.*;
+
 /**
 *   The descritized intents that the BDI agent can have depending on the
 *   the beliefs and the desires of the agent.
@@ -33,5 +35,32 @@ public enum Intent {
     RUN_TO_OWN_PENALTY,
     RUN_UP_FIELD,
 
-    WAIT
+    WAIT;
+
+    /**
+    *   Intents by the name of the ASL action that selects them, e.g.
+    *   kick_at_net for KICK_AT_NET. Built once, and only read afterwards.
+    */
+    private static final Map<String, Intent> BY_ACTION = new HashMap<String, Intent>();
+
+    static {
+        for (Intent intent : values()) {
+            BY_ACTION.put(intent.getActionName(), intent);
+        }
+    }
+
+    /**
+    *   @return The name of the ASL action that selects this intent.
+    */
+    public String getActionName() {
+        return name().toLowerCase();
+    }
+
+    /**
+    *   @param functor The functor of an action term chosen by Jason.
+    *   @return The intent selected by that action, or null if there is none.
+    */
+    public static Intent forAction(String functor) {
+        return BY_ACTION.get(functor);
+    }
 }
@@ -0,0 +1,293 @@
+import jason.asSemantics.*;
+import jason.asSyntax.*;
+import jason.bb.BeliefBase;
+
+import java.util.*;
+
+/**
+*   Numbers the states a JasonAgent's intention can be in when it acts, and
+*   works out from the plans which perceptions each state depends on.
+*
+*   Between decisions Jason's state is its intention (which plans are under
+*   way and how far each has got), the percepts and the mental notes. Jason
+*   is deterministic, so from the same intention, percepts and notes it
+*   always chooses the same action and gets to the same next state. The
+*   decision only reads the percepts named in the contexts of the plans it
+*   may choose: those of the goals left to post in the intention's plans,
+*   and of the goals their plans post in turn. A state's relevant beliefs
+*   are the BeliefSet of those percepts.
+*
+*   Only intentions made of plans whose trigger, context and steps are atoms
+*   get a number; the state of plans with variables, internal actions, tests
+*   and so on is not captured by which plans they are and how far they have
+*   got. Nothing gets a number for a file with plans for beliefs or
+*   failures, which could react to percepts no context names.
+*/
+class IntentionStates {
+
+    /** State of an intention that is not numbered. */
+    public static final int UNKNOWN = -1;
+
+    private static final int EMPTY_STACK = 0;
+
+    // Numbers of the plans made of atoms alone, by label, and of the states
+    // of stacks of them, by the stack below, the plan and its steps left
+    private final Map<String, Integer> statelessPlans = new HashMap<String, Integer>();
+    private final Map<Long, Integer> states = new HashMap<Long, Integer>();
+    private long[] relevance = new long[64];
+
+    // The beliefs the plans for each goal depend on, by goal
+    private final Map<String, Long> goalRelevance = new HashMap<String, Long>();
+
+    // A plan below the top of the stack stays at the same step until the
+    // goal it posted is done, so the state of the stack up to it is kept
+    // with it and the stack is only numbered from the plans pushed since
+    private final Map<IntendedMeans, Frame> frames = new WeakHashMap<IntendedMeans, Frame>();
+    private final List<IntendedMeans> pending = new ArrayList<IntendedMeans>();
+
+    // The mental notes the plans add and remove
+    private final Literal[] notes;
+
+    public IntentionStates(PlanLibrary plans) {
+        // The KQML plans Jason loads into every agent only answer messages,
+        // which JasonAgent never receives
+        boolean goalsOnly = true;
+        Map<String, Literal> noteLiterals = new LinkedHashMap<String, Literal>();
+        for (Plan plan : plans) {
+            Trigger trigger = plan.getTrigger();
+            if (!trigger.getLiteral().getFunctor().startsWith("kqml")) {
+                goalsOnly &= trigger.getOperator() == Trigger.TEOperator.add
+                    && trigger.getType() == Trigger.TEType.achieve;
+            }
+            if (isStateless(plan) && plan.getLabel() != null && statelessPlans.size() < 0x7FFF) {
+                statelessPlans.put(plan.getLabel().getFunctor(), statelessPlans.size());
+            }
+            for (PlanBody step = plan.getBody(); step != null && !step.isEmptyBody(); step = step.getBodyNext()) {
+                if ((step.getBodyType() == PlanBody.BodyType.addBel || step.getBodyType() == PlanBody.BodyType.delBel)
+                    && isAtom(step.getBodyTerm())) {
+                    Literal note = (Literal)step.getBodyTerm();
+                    noteLiterals.put(note.getFunctor(), note);
+                }
+            }
+        }
+        if (!goalsOnly || noteLiterals.size() > Long.SIZE) {
+            statelessPlans.clear();
+        }
+        notes = noteLiterals.values().toArray(new Literal[0]);
+        findGoalRelevance(plans);
+    }
+
+    /**
+    *   @return The mental notes in the belief base, one bit per note.
+    */
+    public long notes(BeliefBase beliefs) {
+        long set = 0;
+        for (int i = 0; i < notes.length; i++) {
+            Literal belief = beliefs.contains(notes[i]);
+            if (belief != null && belief.hasSource(BeliefBase.ASelf)) {
+                set |= 1L << i;
+            }
+        }
+        return set;
+    }
+
+    /**
+    *   @return A number for the state of an intention that has just
+    *   performed an action, the same for the same plans at the same steps,
+    *   or UNKNOWN.
+    */
+    public int stateOf(Intention intention) {
+        if (intention == null) {
+            return UNKNOWN;
+        }
+        // Walk down to the first plan whose stack is already known
+        IntendedMeans top = intention.peek();
+        int state = EMPTY_STACK;
+        pending.clear();
+        for (IntendedMeans means : intention) {
+            Frame frame = means == top ? null : frames.get(means);
+            if (frame != null && frame.step == means.getCurrentStep()) {
+                state = frame.state;
+                break;
+            }
+            pending.add(means);
+        }
+
+        // and number the stack from there up
+        for (int i = pending.size() - 1; i >= 0 && state != UNKNOWN; i--) {
+            IntendedMeans means = pending.get(i);
+            state = push(state, means, means == top);
+            if (means != top) {
+                frames.put(means, new Frame(means.getCurrentStep(), state));
+            }
+        }
+        pending.clear();
+        return state;
+    }
+
+    /**
+    *   @return BeliefSet of the perceptions the next decision from a state
+    *   may depend on.
+    */
+    public long relevantBeliefs(int state) {
+        return relevance[state];
+    }
+
+    /**
+    *   @return The state of a stack with a plan pushed on top, or UNKNOWN.
+    */
+    private int push(int below, IntendedMeans means, boolean top) {
+        Pred label = means.getPlan().getLabel();
+        Integer plan = label == null ? null : statelessPlans.get(label.getFunctor());
+        if (plan == null) {
+            return UNKNOWN;
+        }
+        PlanBody step = means.getCurrentStep();
+        int left = step == null || step.isEmptyBody() ? 0 : step.getPlanSize();
+        if (!top) {
+            // Below the top a plan is at the goal it posted. Plans with
+            // nothing after that goal finish with it and choose nothing,
+            // and Jason leaves a great many of them on the stack.
+            left--;
+            if (left <= 0) {
+                return below;
+            }
+        }
+        if (left > 0xFFFF) {
+            return UNKNOWN;
+        }
+        long key = ((long)below << 32) | (top ? 1L << 31 : 0) | ((long)plan << 16) | left;
+        Integer state = states.get(key);
+        if (state == null) {
+            state = states.size() + 1;
+            states.put(key, state);
+            if (state >= relevance.length) {
+                relevance = Arrays.copyOf(relevance, relevance.length * 2);
+            }
+            // The plan goes on with the steps after the current one
+            relevance[state] = relevance[below] | stepsRelevance(step == null ? null : step.getBodyNext());
+        }
+        return state;
+    }
+
+    /**
+    *   @return BeliefSet of the perceptions the goals posted by some steps
+    *   of a plan depend on.
+    */
+    private long stepsRelevance(PlanBody steps) {
+        long set = BeliefSet.EMPTY;
+        for (PlanBody step = steps; step != null && !step.isEmptyBody(); step = step.getBodyNext()) {
+            if (step.getBodyType() == PlanBody.BodyType.achieve) {
+                Long goal = goalRelevance.get(((Literal)step.getBodyTerm()).getFunctor());
+                set |= goal == null ? BeliefSet.EMPTY : goal;
+            }
+        }
+        return set;
+    }
+
+    /**
+    *   Works out the perceptions each goal depends on: those named in the
+    *   contexts of its plans and those the goals they post depend on. A goal
+    *   with a plan that is not made of atoms alone depends on them all.
+    */
+    private void findGoalRelevance(PlanLibrary plans) {
+        Map<String, List<Plan>> goalPlans = new HashMap<String, List<Plan>>();
+        for (Plan plan : plans) {
+            String goal = plan.getTrigger().getLiteral().getFunctor();
+            List<Plan> list = goalPlans.get(goal);
+            if (list == null) {
+                list = new ArrayList<Plan>();
+                goalPlans.put(goal, list);
+            }
+            list.add(plan);
+            goalRelevance.put(goal, BeliefSet.EMPTY);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, List<Plan>> entry : goalPlans.entrySet()) {
+                long set = BeliefSet.EMPTY;
+                for (Plan plan : entry.getValue()) {
+                    if (plan.getLabel() == null || !statelessPlans.containsKey(plan.getLabel().getFunctor())) {
+                        set = ~BeliefSet.EMPTY;
+                        break;
+                    }
+                    set |= contextRelevance(plan.getContext()) | stepsRelevance(plan.getBody());
+                }
+                if (set != goalRelevance.get(entry.getKey())) {
+                    goalRelevance.put(entry.getKey(), set);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+    *   @return BeliefSet of the perceptions a context names.
+    */
+    private static long contextRelevance(LogicalFormula context) {
+        if (context instanceof LogExpr) {
+            LogExpr expr = (LogExpr)context;
+            return contextRelevance(expr.getLHS())
+                | (expr.getOp() == LogExpr.LogicalOp.not ? BeliefSet.EMPTY : contextRelevance(expr.getRHS()));
+        }
+        if (context instanceof Literal) {
+            Belief belief = Belief.forPercept(((Literal)context).getFunctor());
+            return belief == null ? BeliefSet.EMPTY : belief.mask;
+        }
+        return BeliefSet.EMPTY;
+    }
+
+    /**
+    *   @return True if a plan uses atoms alone, so that the intention's state
+    *   is which plan it is and how far it has got.
+    */
+    private static boolean isStateless(Plan plan) {
+        if (!isAtom(plan.getTrigger().getLiteral()) || !isAtomic(plan.getContext())) {
+            return false;
+        }
+        for (PlanBody step = plan.getBody(); step != null && !step.isEmptyBody(); step = step.getBodyNext()) {
+            switch (step.getBodyType()) {
+            case action:
+            case achieve:
+            case addBel:
+            case delBel:
+                if (!isAtom(step.getBodyTerm())) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAtomic(LogicalFormula context) {
+        if (context == null || context == Literal.LTrue) {
+            return true;
+        }
+        if (context instanceof LogExpr) {
+            LogExpr expr = (LogExpr)context;
+            return isAtomic(expr.getLHS()) && (expr.getOp() == LogExpr.LogicalOp.not || isAtomic(expr.getRHS()));
+        }
+        return isAtom(context);
+    }
+
+    private static boolean isAtom(Term term) {
+        return term instanceof Literal && !(term instanceof InternalActionLiteral)
+            && ((Literal)term).getArity() == 0 && !((Literal)term).hasAnnot() && !((Literal)term).negated();
+    }
+
+    /** A plan's step and the state of the stack up to it. */
+    private static final class Frame {
+        final PlanBody step;
+        final int state;
+
+        Frame(PlanBody step, int state) {
+            this.step = step;
+            this.state = state;
+        }
+    }
+}
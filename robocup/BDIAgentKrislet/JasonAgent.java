@@ -27,22 +27,87 @@ import java.util.*;
 */
 // CODE FROM THE FAQ (https://github.com/jason-lang/jason/blob/master/doc/faq.adoc)
 
-public class JasonAgent extends AgArch {
+public class JasonAgent extends AgArch implements DecisionEngine {
+
+    /**
+    *   The percept literal of each Belief (e.g. ball_seen for BALL_SEEN),
+    *   indexed by ordinal. They are parsed once and shared by every agent;
+    *   Jason copies a percept before annotating it, so they are never changed.
+    */
+    private static final Literal[] PERCEPT_LITERALS = createPerceptLiterals();
+
+    /** Performed when the ASL chooses an action that is not an Intent. */
+    public static final Intent UNKNOWN_ACTION_INTENT = Intent.WAIT;
 
     private boolean running = false;
     private Intent cycleIntent;
-    public List<Belief> cyclePerceptions;
+    public long cyclePerceptions;       // BeliefSet
+    private final List<Literal> percepts = new ArrayList<Literal>(Belief.values().length);
+    private final PerceptionAgent perceptionAgent;
+    private int unknownActions = 0;
+
+    private long decisionBudget = SoccerParams.decision_budget * 1000000L;     // ns
+    private int reasoningCycleLimit = SoccerParams.reasoning_cycle_limit;
+    private Fallback fallback = Fallback.WAIT;
+    private Intent lastIntent = Intent.WAIT;
+
+    // Decision metrics, written by the thread that decides and read by
+    // others (PlayerMetrics) while it does
+    private volatile long decisions = 0;
+    private volatile int lastDecisionCycles = 0;
+    private volatile long totalDecisionCycles = 0;
+    private volatile int mostDecisionCycles = 0;
+    private volatile long overruns = 0;
+    private volatile long cycleLimitHits = 0;
+
+    // The states of the intention, the state it was in when it last acted,
+    // and whether the last decision left it there with the same notes
+    private final IntentionStates states;
+    private int actedState = IntentionStates.UNKNOWN;
+    private boolean steady = false;
+    private long steadyPerceptions;     // BeliefSet the steady decision depended on
+    private long relevantBeliefs = BeliefSet.ALL;   // those the last decision could depend on
+    private boolean changeDriven = true;
+    private DecisionCache cache;
+    private long skipped = 0;
+    private long reasoned = 0;
 
     public JasonAgent(String agent_asl) {
-        Agent ag = new Agent();
+        // Applies only the beliefs that changed since the last cycle
+        PerceptionAgent ag = new PerceptionAgent();
+        perceptionAgent = ag;
 
         new TransitionSystem(ag, new Circumstance(), new Settings(), this);
 
+        // The asl file is parsed once and its plans are shared with every
+        // other agent running it
         try {
-            ag.initAg(agent_asl);
+            AgentTemplate.forFile(agent_asl).initAg(ag);
         }catch(JasonException e){
             System.out.println(e.toString());
         }
+        checkActions(agent_asl, ag.getPL());
+        states = new IntentionStates(ag.getPL());
+    }
+
+    /**
+    *   Reports every action in the loaded plans that does not name an
+    *   Intent, so a typo in an asl file shows up when the agent is created
+    *   rather than as a player that stands still during the match.
+    */
+    private static void checkActions(String agent_asl, PlanLibrary plans) {
+        for (Plan plan : plans) {
+            for (PlanBody body = plan.getBody(); body != null && !body.isEmptyBody(); body = body.getBodyNext()) {
+                if (body.getBodyType() != PlanBody.BodyType.action) {
+                    continue;
+                }
+                Term action = body.getBodyTerm();
+                if (!(action instanceof Structure) || Intent.forAction(((Structure)action).getFunctor()) == null) {
+                    System.out.println(agent_asl + ": action " + action + " is not an Intent, "
+                                       + UNKNOWN_ACTION_INTENT + " will be performed instead");
+                }
+            }
+        }
     }
 
     /**
@@ -55,36 +120,196 @@ public class JasonAgent extends AgArch {
     *   need to make some optimizations on this depending on the nautre of
     *   the jason librbary.
     */
-    public Intent getIntent(List<Belief> perceptions) {
-        //System.out.println("before2");
+    @Override
+    public Intent getIntent(long perceptions) {
+        // A decision that would leave the agent where it is need not be
+        // reasoned again
+        int stateBefore = actedState;
+        long relevant = BeliefSet.EMPTY;
+        long notesBefore = 0;
+        relevantBeliefs = BeliefSet.ALL;
+        if (stateBefore != IntentionStates.UNKNOWN) {
+            relevantBeliefs = states.relevantBeliefs(stateBefore);
+            relevant = perceptions & relevantBeliefs;
+            if (changeDriven && steady && relevant == steadyPerceptions) {
+                // Nothing the last decision depended on has changed
+                skipped++;
+                decisions++;
+                lastDecisionCycles = 0;
+                return lastIntent;
+            }
+            notesBefore = states.notes(getTS().getAg().getBB());
+            Intent cached = cache == null ? null : cache.get(stateBefore, relevant, notesBefore);
+            if (cached != null) {
+                steady = true;
+                steadyPerceptions = relevant;
+                decisions++;
+                lastDecisionCycles = 0;
+                lastIntent = cached;
+                return cached;
+            }
+        }
+
         cyclePerceptions = perceptions;
-        //System.out.println("mid");
-        run();
-        //System.out.println("end");
-        return cycleIntent;
+        cycleIntent = null;
+        actedState = IntentionStates.UNKNOWN;
+        steady = false;
+        int cycles = run(System.nanoTime() + decisionBudget);
+        reasoned++;
+
+        decisions++;
+        lastDecisionCycles = cycles;
+        totalDecisionCycles += cycles;
+        mostDecisionCycles = Math.max(mostDecisionCycles, cycles);
+
+        if (cycleIntent != null) {
+            if (stateBefore != IntentionStates.UNKNOWN) {
+                long notesAfter = states.notes(getTS().getAg().getBB());
+                steady = actedState == stateBefore && notesAfter == notesBefore;
+                steadyPerceptions = relevant;
+                if (cache != null) {
+                    cache.put(stateBefore, relevant, notesBefore, cycleIntent, actedState, notesAfter);
+                }
+            }
+            lastIntent = cycleIntent;
+            return cycleIntent;
+        }
+        // Out of time or cycles. Jason's intentions are left where they are,
+        // so the next decision carries on from there with fresh percepts.
+        relevantBeliefs = BeliefSet.ALL;
+        if (cycles >= reasoningCycleLimit) {
+            cycleLimitHits++;
+        } else {
+            overruns++;
+        }
+        return fallback == Fallback.LAST_INTENT ? lastIntent : Intent.WAIT;
     }
 
     /**
     *   My over arching assumption about Jason is that calling reasoningCycle
     *   here will call act at the end of a series of reasoning cycles.
+    *
+    *   Reasoning stops when Jason acts, when System.nanoTime() passes
+    *   deadline or when the reasoning cycle limit is reached, whichever
+    *   comes first.
+    *   @return The number of reasoning cycles run.
     */
-    public void run() {
+    public int run(long deadline) {
         running = true;
-        
-        //System.out.println(perceive());
-       
+        int cycles = 0;
+
         while (isRunning()) {
-            
-          // calls the Jason engine to perform one reasoning cycle
-          
-          getTS().reasoningCycle();
-         
-          // Sleep for 1 second so we don't run extra reasoning cycles
-          // if we don't need to
-          if (canSleep()) {
-              sleep();
-          }
+            if (cycles >= reasoningCycleLimit || System.nanoTime() - deadline >= 0) {
+                running = false;
+                break;
+            }
+
+            // calls the Jason engine to perform one reasoning cycle
+            getTS().reasoningCycle();
+            cycles++;
+
+            // Sleep for 1 second so we don't run extra reasoning cycles
+            // if we don't need to
+            if (canSleep()) {
+                sleep();
+            }
         }
+        return cycles;
+    }
+
+    @Override
+    public void setDecisionBudget(long millis) {
+        decisionBudget = millis * 1000000L;
+    }
+
+    @Override
+    public void setReasoningCycleLimit(int limit) {
+        reasoningCycleLimit = limit;
+    }
+
+    @Override
+    public void setFallback(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+    *   @return The relevant beliefs of the state the last decision started
+    *   from (see IntentionStates), or BeliefSet.ALL if it was not numbered
+    *   or the decision fell back.
+    */
+    @Override
+    public long getRelevantBeliefs() {
+        return relevantBeliefs;
+    }
+
+    /**
+    *   @param changeDriven True (the default) to skip reasoning when the
+    *   last decision left the agent where it was and none of the perceptions
+    *   it depended on has changed since, and return the same intent.
+    */
+    public void setChangeDriven(boolean changeDriven) {
+        this.changeDriven = changeDriven;
+    }
+
+    /**
+    *   Remembers the decisions that leave the agent's intention and mental
+    *   notes as they were, so the same perceptions in the same state return
+    *   the same intent without reasoning (see DecisionCache).
+    *   @param capacity Most decisions to remember, or 0 to reason every time.
+    */
+    public void setDecisionCache(int capacity) {
+        cache = capacity > 0 ? new DecisionCache(capacity) : null;
+    }
+
+    /** @return The decision cache, or null if there is none. */
+    public DecisionCache getDecisionCache() {
+        return cache;
+    }
+
+    /** @return The number of getIntent() calls. */
+    @Override
+    public long getDecisionCount() {
+        return decisions;
+    }
+
+    /** @return The reasoning cycles run by the last decision. */
+    @Override
+    public int getLastDecisionCycles() {
+        return lastDecisionCycles;
+    }
+
+    /** @return The decisions skipped as nothing they depended on had changed. */
+    public long getSkippedDecisionCount() {
+        return skipped;
+    }
+
+    /** @return The decisions that ran Jason's reasoning cycles. */
+    public long getReasonedDecisionCount() {
+        return reasoned;
+    }
+
+    /** @return The reasoning cycles run by all decisions. */
+    @Override
+    public long getTotalDecisionCycles() {
+        return totalDecisionCycles;
+    }
+
+    /** @return The most reasoning cycles any single decision ran. */
+    @Override
+    public int getMostDecisionCycles() {
+        return mostDecisionCycles;
+    }
+
+    /** @return The decisions that ran out of time and fell back. */
+    @Override
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /** @return The decisions that reached the reasoning cycle limit and fell back. */
+    @Override
+    public long getCycleLimitCount() {
+        return cycleLimitHits;
     }
 
     /**
@@ -92,13 +317,28 @@ public class JasonAgent extends AgArch {
     *   the current perceptions.
     */
     public List<Literal> perceive() {
-        List<Literal> l = new ArrayList<Literal>();
-        // TODO
-        //l.add(Literal.parseLiteral("x(10)"));
-        for (Belief perception : cyclePerceptions) {
-            l.add(Literal.parseLiteral(perception.toString().toLowerCase()));
+        // PerceptionAgent compares the set with the last one, and reads the
+        // list only if it has to fall back to Agent.buf(). The list is only
+        // read during this reasoning cycle, so it is refilled rather than
+        // reallocated.
+        perceptionAgent.setPerceptions(cyclePerceptions);
+        percepts.clear();
+        for (long set = cyclePerceptions; set != 0; set = BeliefSet.next(set)) {
+            percepts.add(PERCEPT_LITERALS[BeliefSet.first(set).ordinal()]);
         }
-        return l;
+        return percepts;
+    }
+
+    /**
+    *   Parses the percept literal of every Belief.
+    */
+    private static Literal[] createPerceptLiterals() {
+        Belief[] beliefs = Belief.values();
+        Literal[] literals = new Literal[beliefs.length];
+        for (Belief belief : beliefs) {
+            literals[belief.ordinal()] = Literal.parseLiteral(belief.getPerceptName());
+        }
+        return literals;
     }
 
     /**
@@ -113,8 +353,53 @@ public class JasonAgent extends AgArch {
         action.setResult(true);
         actionExecuted(action);
 
-        cycleIntent = Intent.valueOf(action.getActionTerm().toString().toUpperCase());
+        // Actions are matched on their functor, which Jason already holds
+        // as a String with a cached hash, so no text is built here.
+        Intent intent = Intent.forAction(action.getActionTerm().getFunctor());
+        if (intent == null) {
+            unknownActions++;
+            intent = UNKNOWN_ACTION_INTENT;
+        }
+        cycleIntent = intent;
         running = false;
+
+        // Only an intention acting alone has all of Jason's state
+        Circumstance c = getTS().getC();
+        if (!c.hasEvent() && !c.hasRunningIntention() && !c.hasPendingIntention()) {
+            actedState = states.stateOf(action.getIntention());
+        }
+    }
+
+    /**
+    *   @return How many chosen actions did not name an Intent and were
+    *   replaced by UNKNOWN_ACTION_INTENT.
+    */
+    public int getUnknownActionCount() {
+        return unknownActions;
+    }
+
+    /**
+    *   @return The number of beliefs added to or removed from the belief
+    *   base at the start of the last reasoning cycle.
+    */
+    public int getBeliefChangeCount() {
+        return perceptionAgent.getLastChangeCount();
+    }
+
+    /**
+    *   @return The number of beliefs added to or removed from the belief
+    *   base by all reasoning cycles.
+    */
+    public long getTotalBeliefChangeCount() {
+        return perceptionAgent.getChangeCount();
+    }
+
+    /**
+    *   @return How many belief updates compared every percept, as Jason's
+    *   own buf() does.
+    */
+    public long getFullBeliefUpdateCount() {
+        return perceptionAgent.getFullUpdateCount();
     }
 
     /** Sleeps the thread for 1 second */
@@ -160,7 +445,7 @@ public class JasonAgent extends AgArch {
         String FileName = "AgentSpecifications/";
 
         for(int index = 0; index < aslFiles.length; index++){
-            List<Belief> perceptions = Arrays.asList(Belief.BALL_SEEN ,Belief.AT_BALL,Belief.ENEMY_GOAL_SEEN, Belief.TESTING);
+            long perceptions = BeliefSet.of(Belief.BALL_SEEN ,Belief.AT_BALL,Belief.ENEMY_GOAL_SEEN, Belief.TESTING);
             JasonAgent agent = new JasonAgent(FileName + aslFiles[index]);
             Intent intent = agent.getIntent(perceptions);
             if(intent.equals(Intent.KICK_AT_NET)){
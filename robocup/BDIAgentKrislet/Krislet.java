@@ -10,6 +10,8 @@
 //********************************************
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.*;
 import java.util.regex.*;
 
@@ -45,14 +47,73 @@ class Krislet implements SendCommand
     //	asl (default Krislet.asl)
     //		Name of the ASL file for the agent (should be located in the AgentSpecifications directory).
     //
+    //	deliberation (default sync)
+    //		sync to reason between sensing and acting, async to reason on a
+    //		separate thread and act on the freshest decision each cycle.
+    //
+    //	offset (default 20)
+    //		Milliseconds into each server cycle at which the player acts.
+    //
+    //	timing (default realtime)
+    //		synch when the server runs in synchronous mode: the player then
+    //		acts on every (think) and answers with (done) instead of keeping
+    //		time itself.
+    //
+    //	threads (default platform)
+    //		virtual to run the receive loop and the brain on virtual threads
+    //		(Java 21 and later; older JVMs keep platform threads).
+    //
+    //	engine (default jason)
+    //		compiled to decide with the class AslCompiler generated from the
+    //		ASL file instead of running it with Jason. Falls back to Jason if
+    //		there is no such class or the file has changed since.
+    //
+    //	record
+    //		File to write the perceptions of every decision to, one per line,
+    //		for Benchmarks engines to replay.
+    //
+    //	cache (default 0)
+    //		Number of decisions the Jason engine remembers, so that a decision
+    //		that leaves the agent where it was is not reasoned again. 0 turns
+    //		the cache off.
+    //
     //
     public static void main(String a[])
-	throws SocketException, IOException
+	throws IOException
+    {
+	Krislet player = create(a);
+	if(player == null)
+	    return;
+
+	// enter main loop
+	if(PlayerThreads.isVirtual())
+	    {
+		Thread loop = PlayerThreads.start(() -> player.run(), "krislet-" + player.m_team);
+		try{
+		    loop.join();
+		}catch(InterruptedException e){
+		}
+	    }
+	else
+	    player.mainLoop();
+    }
+
+    //---------------------------------------------------------------------------
+    // This function creates a player from command line parameters (see
+    // main). It prints the usage and returns null if they are not valid.
+    public static Krislet create(String a[])
+	throws IOException
     {
 	String	hostName = new String("");
 	int			port = 6000;
 	String	team = new String("Krislet3");
 	String	asl_file_name = new String("AgentSpecifications/Krislet.asl");
+	boolean	async_deliberation = false;
+	int	offset = SoccerParams.cycle_offset;
+	boolean	synch = false;
+	boolean	compiled_engine = false;
+	String	record_file = null;
+	int	decision_cache = 0;
 
 	try
 	    {
@@ -85,6 +146,53 @@ class Krislet implements SendCommand
                         throw new Exception();
 					}
 			    }
+			else if( a[c].compareTo("-deliberation") == 0 )
+			    {
+				if( a[c+1].compareTo("async") == 0 )
+				    async_deliberation = true;
+				else if( a[c+1].compareTo("sync") != 0 )
+				    throw new Exception();
+			    }
+			else if( a[c].compareTo("-offset") == 0 )
+			    {
+				offset = Integer.parseInt(a[c+1]);
+			    }
+			else if( a[c].compareTo("-threads") == 0 )
+			    {
+				if( a[c+1].compareTo("virtual") == 0 )
+				    {
+					if( !PlayerThreads.setVirtual(true) )
+					    System.out.println("Virtual threads need Java 21, using platform threads");
+				    }
+				else if( a[c+1].compareTo("platform") == 0 )
+				    PlayerThreads.setVirtual(false);
+				else
+				    throw new Exception();
+			    }
+			else if( a[c].compareTo("-engine") == 0 )
+			    {
+				if( a[c+1].compareTo("compiled") == 0 )
+				    compiled_engine = true;
+				else if( a[c+1].compareTo("jason") != 0 )
+				    throw new Exception();
+			    }
+			else if( a[c].compareTo("-record") == 0 )
+			    {
+				record_file = a[c+1];
+			    }
+			else if( a[c].compareTo("-cache") == 0 )
+			    {
+				decision_cache = Integer.parseInt(a[c+1]);
+				if( decision_cache < 0 )
+				    throw new Exception();
+			    }
+			else if( a[c].compareTo("-timing") == 0 )
+			    {
+				if( a[c+1].compareTo("synch") == 0 )
+				    synch = true;
+				else if( a[c+1].compareTo("realtime") != 0 )
+				    throw new Exception();
+			    }
 			else
 			    {
 				throw new Exception();
@@ -102,30 +210,42 @@ class Krislet implements SendCommand
 		System.err.println("    port        port_number      6000");
 		System.err.println("    team        team_name        Kris");
 		System.err.println("    asl         asl_file_name    Krislet.asl");
+		System.err.println("    deliberation sync|async      sync");
+		System.err.println("    offset      milliseconds     " + SoccerParams.cycle_offset);
+		System.err.println("    timing      realtime|synch   realtime");
+		System.err.println("    threads     platform|virtual platform");
+		System.err.println("    engine      jason|compiled   jason");
+		System.err.println("    record      trace_file");
+		System.err.println("    cache       entries          0");
 		System.err.println("");
 		System.err.println("    Example:");
 		System.err.println("      krislet -host www.host.com -port 6000 -team Poland");
 		System.err.println("    or");
 		System.err.println("      krislet -host 193.117.005.223");
-		return;
+		return null;
 	    }
 
 	Krislet player = new Krislet(InetAddress.getByName(hostName),
 				     port, team, asl_file_name);
-
-	// enter main loop
-	player.mainLoop();
+	player.m_asyncDeliberation = async_deliberation;
+	player.m_scheduler.setOffset(offset);
+	player.m_scheduler.setSynchronous(synch);
+	player.m_compiledEngine = compiled_engine;
+	player.m_recordFile = record_file;
+	player.m_decisionCache = decision_cache;
+	return player;
     }
 
     //---------------------------------------------------------------------------
     // This constructor opens socket for  connection with server
     public Krislet(InetAddress host, int port, String team, String asl_file_name)
-	throws SocketException
+	throws IOException
     {
-	m_socket = new DatagramSocket();
-	m_host = host;
-	m_port = port;
+	m_transport = new DatagramTransport(host, port, MSG_SIZE);
+	m_encoder = new CommandEncoder(ByteBuffer.allocateDirect(MSG_SIZE));
+	m_scheduler = new CycleScheduler();
 	m_team = team;
+	m_metrics = new PlayerMetrics(team, m_scheduler);
 	m_playing = true;
 	m_asl_file_name = asl_file_name;
 	m_goalie = false;
@@ -138,7 +258,7 @@ class Krislet implements SendCommand
     // This destructor closes socket to server
     public void finalize()
     {
-	m_socket.close();
+	m_transport.close();
     }
 
 
@@ -149,16 +269,42 @@ class Krislet implements SendCommand
     // This is main loop for player
     protected void mainLoop() throws IOException
     {
-	byte[] buffer = new byte[MSG_SIZE];
-	DatagramPacket packet = new DatagramPacket(buffer, MSG_SIZE);
+	connect();
+	play();
+    }
 
+    //---------------------------------------------------------------------------
+    // This function runs the main loop on a thread of its own
+    void run()
+    {
+	try{
+	    mainLoop();
+	}catch(IOException e){
+	    System.err.println("player stopped: " + e);
+	}
+    }
+
+    //---------------------------------------------------------------------------
+    // This function connects to the server and starts the brain
+    protected void connect() throws IOException
+    {
 	// first we need to initialize connection with server
 	init();
 
-	m_socket.receive(packet);
-	parseInitCommand(new String(buffer));
-	m_port = packet.getPort();
+	parseInitCommand(m_transport.receive().toString());
+	m_transport.replyToLastSender();
+
+	// In synchronous mode ask for a see message in every cycle, so
+	// that each (think) comes with fresh visual information
+	if(m_scheduler.isSynchronous())
+	    synchSee();
+    }
 
+    //---------------------------------------------------------------------------
+    // This function passes messages from the server to the brain until the
+    // player leaves the game
+    protected void play() throws IOException
+    {
 	// Now we should be connected to the server
 	// and we know side, player number and play mode
 	while( m_playing )
@@ -167,62 +313,147 @@ class Krislet implements SendCommand
     }
 
 
+    //---------------------------------------------------------------------------
+    // This function passes every message that has already arrived to the
+    // brain, without blocking. It is used instead of play() when one
+    // selector thread serves several players.
+    void receiveAvailable() throws IOException
+    {
+	CharSequence message;
+	while( m_playing && (message = m_transport.poll()) != null )
+	    parseSensorInformation(message);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function tells whether the player is still in the game
+    public boolean isPlaying()
+    {
+	return m_playing;
+    }
+
+    DatagramTransport getTransport()
+    {
+	return m_transport;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function tells the player which selector reads its messages
+    void setSelector(PlayerSelector selector)
+    {
+	m_selector = selector;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function tells whether the player is connected and its brain has
+    // loaded its agent
+    public boolean isReady()
+    {
+	return m_brain instanceof Brain && ((Brain)m_brain).isAgentLoaded();
+    }
+
+
     //===========================================================================
     // Implementation of SendCommand Interface
 
     //---------------------------------------------------------------------------
     // This function sends move command to the server
-    public void move(double x, double y)
+    public synchronized void move(double x, double y)
     {
-	send("(move " + Double.toString(x) + " " + Double.toString(y) + ")");
+	send(m_encoder.begin("move").append(x).append(y).end());
+	m_metrics.moveCommands++;
+	m_scheduler.commandSent();
     }
 
     //---------------------------------------------------------------------------
     // This function sends turn command to the server
-    public void turn(double moment)
+    public synchronized void turn(double moment)
     {
-	send("(turn " + Double.toString(moment) + ")");
+	send(m_encoder.begin("turn").append(moment).end());
+	m_metrics.turnCommands++;
+	m_scheduler.commandSent();
     }
 
-    public void turn_neck(double moment)
+    public synchronized void turn_neck(double moment)
     {
-	send("(turn_neck " + Double.toString(moment) + ")");
+	send(m_encoder.begin("turn_neck").append(moment).end());
+	m_metrics.turnNeckCommands++;
     }
 
     //---------------------------------------------------------------------------
     // This function sends dash command to the server
-    public void dash(double power)
+    public synchronized void dash(double power)
     {
-	send("(dash " + Double.toString(power) + ")");
+	send(m_encoder.begin("dash").append(power).end());
+	m_metrics.dashCommands++;
+	m_scheduler.commandSent();
     }
 
     //---------------------------------------------------------------------------
     // This function sends kick command to the server
-    public void kick(double power, double direction)
+    public synchronized void kick(double power, double direction)
     {
-	send("(kick " + Double.toString(power) + " " + Double.toString(direction) + ")");
+	send(m_encoder.begin("kick").append(power).append(direction).end());
+	m_metrics.kickCommands++;
+	m_scheduler.commandSent();
     }
 
     //---------------------------------------------------------------------------
     // This function sends say command to the server
-    public void say(String message)
+    public synchronized void say(String message)
     {
-	send("(say " + message + ")");
+	send(m_encoder.begin("say").append(message).end());
+	m_metrics.sayCommands++;
     }
 
     //---------------------------------------------------------------------------
     // This function sends chage_view command to the server
-    public void changeView(String angle, String quality)
+    public synchronized void changeView(String angle, String quality)
     {
-	send("(change_view " + angle + " " + quality + ")");
+	send(m_encoder.begin("change_view").append(angle).append(quality).end());
+	m_metrics.changeViewCommands++;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function sends synch_see command to the server
+    private synchronized void synchSee()
+    {
+	send(m_encoder.begin("synch_see").end());
+    }
+
+    //---------------------------------------------------------------------------
+    // This function sends done command to the server
+    public synchronized void done()
+    {
+	send(m_encoder.begin("done").end());
+	m_metrics.doneCommands++;
     }
 
     //---------------------------------------------------------------------------
     // This function sends bye command to the server
-    public void bye()
+    public synchronized void bye()
     {
 	m_playing = false;
-	send("(bye)");
+	send(m_encoder.begin("bye").end());
+	m_metrics.unregister();
+	// A selector may be reading the channel right now, so it closes the
+	// channel itself. No more messages come after bye, so a thread blocked
+	// in receive() has to be woken up by closing the channel.
+	PlayerSelector selector = m_selector;
+	if(selector != null)
+	    selector.remove(this);
+	else
+	    m_transport.close();
+    }
+
+    //---------------------------------------------------------------------------
+    // This function takes the player out of the game before time_over: its
+    // brain stops and says bye
+    public void leave()
+    {
+	if(m_brain instanceof Brain)
+	    ((Brain)m_brain).stop();
+	else
+	    bye();
     }
 
     //---------------------------------------------------------------------------
@@ -241,7 +472,15 @@ class Krislet implements SendCommand
 			    m_team,
 			    m.group(1).charAt(0),
 			    m_asl_file_name,
-			    m.group(3));
+			    m.group(3),
+			    m_asyncDeliberation,
+			    m_scheduler,
+			    m_compiledEngine,
+			    m_recordFile,
+			    m_decisionCache);
+
+	// Watchable over JMX until the player says bye
+	m_metrics.register(Integer.parseInt(m.group(2)), (Brain)m_brain);
     }
 
 
@@ -250,35 +489,63 @@ class Krislet implements SendCommand
     // Here comes collection of communication function
     //---------------------------------------------------------------------------
     // This function sends initialization command to the server
-    private void init()
+    private synchronized void init()
     {
-		if(!m_goalie){
-			send("(init " + m_team + " (version 9))");
-		}else{
-			send("(init " + m_team + " (version 9) (goalie))");
+		m_encoder.begin("init").append(m_team).append("(version 9)");
+		if(m_goalie){
+			m_encoder.append("(goalie)");
 		}
-	
+		send(m_encoder.end());
+
     }
 
     //---------------------------------------------------------------------------
     // This function parses sensor information
-    private void parseSensorInformation(String message)
+    private void parseSensorInformation(CharSequence message)
 	throws IOException
     {
-	// First check kind of information
-	Matcher m=message_pattern.matcher(message);
-	if(!m.matches())
+	// First check kind of information. The message is only valid until
+	// the next one is received, so only the rare ones become Strings.
+	if( startsWith(message, "(see ") )
 	    {
-		throw new IOException(message);
+		long		arrival = System.nanoTime();
+		VisualInfo	info = new VisualInfo();
+		m_metrics.seeMessages++;
+		info.setArrival(arrival);
+		info.parse(message);
+		m_metrics.seeMessagesParsed++;
+		m_scheduler.observe(info.getTime(), arrival);
+		m_brain.see(info);
 	    }
-	if( m.group(1).compareTo("see") == 0 )
+	else if( startsWith(message, "(hear ") )
 	    {
-		VisualInfo	info = new VisualInfo(message);
-		info.parse();
-		m_brain.see(info);
+		m_metrics.hearMessages++;
+		parseHear(message.toString());
+	    }
+	else if( startsWith(message, "(think)") )
+	    {
+		m_metrics.thinkMessages++;
+		m_scheduler.think();
+	    }
+	else if( startsWith(message, "(sense_body ") )
+	    {
+		m_metrics.senseBodyMessages++;
+		parseSenseBody(message);
 	    }
-	else if( m.group(1).compareTo("hear") == 0 )
-	    parseHear(message);
+	else if( !startsWith(message, "(") && message.length() > 0 )
+	    throw new IOException(message.toString());
+	else if( message.length() > 0 )
+	    m_metrics.otherMessages++;
+    }
+
+    private static boolean startsWith(CharSequence message, String prefix)
+    {
+	if( message.length() < prefix.length() )
+	    return false;
+	for( int c = 0 ; c < prefix.length() ; c ++ )
+	    if( message.charAt(c) != prefix.charAt(c) )
+		return false;
+	return true;
     }
 
 
@@ -309,13 +576,23 @@ class Krislet implements SendCommand
 
 
     //---------------------------------------------------------------------------
-    // This function sends via socket message to the server
-    private void send(String message)
+    // This function passes the time of a sense_body and the body commands it
+    // counts as carried out to the scheduler
+    private void parseSenseBody(CharSequence message)
+	throws IOException
+    {
+	long	arrival = System.nanoTime();
+	m_senseBody.parse(message);
+	m_scheduler.senseBody(m_senseBody.getTime(), arrival, m_senseBody.getBodyCommands());
+    }
+
+
+    //---------------------------------------------------------------------------
+    // This function sends an encoded command via socket to the server
+    private void send(ByteBuffer command)
     {
-	byte[] buffer = Arrays.copyOf(message.getBytes(),MSG_SIZE);
 	try{
-	    DatagramPacket packet = new DatagramPacket(buffer, MSG_SIZE, m_host, m_port);
-	    m_socket.send(packet);
+	    m_transport.send(command);
 	}
 	catch(IOException e){
 	    System.err.println("socket sending error " + e);
@@ -326,18 +603,16 @@ class Krislet implements SendCommand
     //---------------------------------------------------------------------------
 
     // This function waits for new message from server
-    private String receive()
+    private CharSequence receive()
     {
-	byte[] buffer = new byte[MSG_SIZE];
-	DatagramPacket packet = new DatagramPacket(buffer, MSG_SIZE);
 	try{
-	    m_socket.receive(packet);
-	}catch(SocketException e){
+	    return m_transport.receive();
+	}catch(ClosedChannelException e){
 	    System.out.println("shutting down...");
 	}catch(IOException e){
 	    System.err.println("socket receiving error " + e);
 	}
-	return new String(buffer);
+	return "";
     }
 
 
@@ -345,15 +620,21 @@ class Krislet implements SendCommand
     //===========================================================================
     // Private members
     // class members
-    private DatagramSocket	m_socket;		// Socket to communicate with server
-    private InetAddress		m_host;			// Server address
-    private int			m_port;			// server port
+    private DatagramTransport	m_transport;		// Channel to communicate with server
+    private volatile PlayerSelector	m_selector;	// reads m_transport, or null
+    private CommandEncoder	m_encoder;		// Writes commands into the send buffer
+    private CycleScheduler	m_scheduler;		// Tracks the server's cycles
+    private SenseBodyParser	m_senseBody = new SenseBodyParser();	// Reads sense_body messages
     private String		m_team;			// team name
     private SensorInput		m_brain;		// input for sensor information
     private boolean             m_playing;              // controls the MainLoop
 	private String		m_asl_file_name;		// name of the ASL
 	private boolean 	m_goalie;
-    private Pattern message_pattern = Pattern.compile("^\\((\\w+?)\\s.*");
+    private boolean		m_asyncDeliberation;	// reason on a separate thread
+    private boolean		m_compiledEngine;	// decide with AslCompiler's code
+    private String		m_recordFile;		// trace of perceptions, or null
+    private int			m_decisionCache;	// decisions JasonAgent remembers
+    private PlayerMetrics	m_metrics;		// counters, over JMX once registered
     private Pattern hear_pattern = Pattern.compile("^\\(hear\\s(\\w+?)\\s(\\w+?)\\s(.*)\\).*");
     //private Pattern coach_pattern = Pattern.compile("coach");
     // constants
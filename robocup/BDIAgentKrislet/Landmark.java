@@ -0,0 +1,176 @@
+/**
+*   Catalogue of every fixed object the server can report in a see message:
+*   the ball, the two goals, the four lines and the 53 flags.
+*
+*   SeeParser identifies each object it parses against this catalogue, so a
+*   landmark can be looked up in a VisualInfo by ordinal() instead of by
+*   comparing type names. Each landmark also carries the type name
+*   (ObjectInfo.m_type) that the parser used to build by concatenation, e.g.
+*   "flag p l c". Note that the numbered flags share their type name with
+*   other flags ("flag t l" is used for all of (f t l 10) to (f t l 50)).
+*/
+public enum Landmark {
+    BALL("ball"),
+
+    GOAL_L("goal l"),
+    GOAL_R("goal r"),
+
+    LINE_L("line"),
+    LINE_R("line"),
+    LINE_T("line"),
+    LINE_B("line"),
+
+    // Centre and corner flags
+    FLAG_C("flag c", ' ', 'c', ' ', 0),
+    FLAG_C_T("flag c t", ' ', 'c', 't', 0),
+    FLAG_C_B("flag c b", ' ', 'c', 'b', 0),
+    FLAG_L_T("flag l t", ' ', 'l', 't', 0),
+    FLAG_L_B("flag l b", ' ', 'l', 'b', 0),
+    FLAG_R_T("flag r t", ' ', 'r', 't', 0),
+    FLAG_R_B("flag r b", ' ', 'r', 'b', 0),
+
+    // Penalty box flags
+    FLAG_P_L_T("flag p l t", 'p', 'l', 't', 0),
+    FLAG_P_L_C("flag p l c", 'p', 'l', 'c', 0),
+    FLAG_P_L_B("flag p l b", 'p', 'l', 'b', 0),
+    FLAG_P_R_T("flag p r t", 'p', 'r', 't', 0),
+    FLAG_P_R_C("flag p r c", 'p', 'r', 'c', 0),
+    FLAG_P_R_B("flag p r b", 'p', 'r', 'b', 0),
+
+    // Goal post flags
+    FLAG_G_L_T("flag g l t", 'g', 'l', 't', 0),
+    FLAG_G_L_B("flag g l b", 'g', 'l', 'b', 0),
+    FLAG_G_R_T("flag g r t", 'g', 'r', 't', 0),
+    FLAG_G_R_B("flag g r b", 'g', 'r', 'b', 0),
+
+    // Flags outside the field in line with the centre
+    FLAG_L_0("flag l", ' ', 'l', ' ', 0),
+    FLAG_R_0("flag r", ' ', 'r', ' ', 0),
+    FLAG_T_0("flag t", ' ', 't', ' ', 0),
+    FLAG_B_0("flag b", ' ', 'b', ' ', 0),
+
+    // Flags outside the top and bottom lines, every 10 m
+    FLAG_T_L_10("flag t l", ' ', 't', 'l', 10),
+    FLAG_T_L_20("flag t l", ' ', 't', 'l', 20),
+    FLAG_T_L_30("flag t l", ' ', 't', 'l', 30),
+    FLAG_T_L_40("flag t l", ' ', 't', 'l', 40),
+    FLAG_T_L_50("flag t l", ' ', 't', 'l', 50),
+    FLAG_T_R_10("flag t r", ' ', 't', 'r', 10),
+    FLAG_T_R_20("flag t r", ' ', 't', 'r', 20),
+    FLAG_T_R_30("flag t r", ' ', 't', 'r', 30),
+    FLAG_T_R_40("flag t r", ' ', 't', 'r', 40),
+    FLAG_T_R_50("flag t r", ' ', 't', 'r', 50),
+    FLAG_B_L_10("flag b l", ' ', 'b', 'l', 10),
+    FLAG_B_L_20("flag b l", ' ', 'b', 'l', 20),
+    FLAG_B_L_30("flag b l", ' ', 'b', 'l', 30),
+    FLAG_B_L_40("flag b l", ' ', 'b', 'l', 40),
+    FLAG_B_L_50("flag b l", ' ', 'b', 'l', 50),
+    FLAG_B_R_10("flag b r", ' ', 'b', 'r', 10),
+    FLAG_B_R_20("flag b r", ' ', 'b', 'r', 20),
+    FLAG_B_R_30("flag b r", ' ', 'b', 'r', 30),
+    FLAG_B_R_40("flag b r", ' ', 'b', 'r', 40),
+    FLAG_B_R_50("flag b r", ' ', 'b', 'r', 50),
+
+    // Flags outside the left and right lines, every 10 m
+    FLAG_L_T_10("flag l t", ' ', 'l', 't', 10),
+    FLAG_L_T_20("flag l t", ' ', 'l', 't', 20),
+    FLAG_L_T_30("flag l t", ' ', 'l', 't', 30),
+    FLAG_L_B_10("flag l b", ' ', 'l', 'b', 10),
+    FLAG_L_B_20("flag l b", ' ', 'l', 'b', 20),
+    FLAG_L_B_30("flag l b", ' ', 'l', 'b', 30),
+    FLAG_R_T_10("flag r t", ' ', 'r', 't', 10),
+    FLAG_R_T_20("flag r t", ' ', 'r', 't', 20),
+    FLAG_R_T_30("flag r t", ' ', 'r', 't', 30),
+    FLAG_R_B_10("flag r b", ' ', 'r', 'b', 10),
+    FLAG_R_B_20("flag r b", ' ', 'r', 'b', 20),
+    FLAG_R_B_30("flag r b", ' ', 'r', 'b', 30);
+
+    public static final int COUNT = values().length;
+
+    private static final Landmark[] FLAGS = new Landmark[3 * 6 * 6 * 6];
+
+    static {
+        for (Landmark landmark : values()) {
+            if (landmark.m_typeName.startsWith("flag")) {
+                FLAGS[flagKey(landmark.m_type, landmark.m_pos1, landmark.m_pos2, landmark.m_num)] = landmark;
+            }
+        }
+    }
+
+    private final String m_typeName;
+    private final char m_type;
+    private final char m_pos1;
+    private final char m_pos2;
+    private final int m_num;
+
+    Landmark(String typeName) {
+        this(typeName, ' ', ' ', ' ', 0);
+    }
+
+    Landmark(String typeName, char type, char pos1, char pos2, int num) {
+        m_typeName = typeName;
+        m_type = type;
+        m_pos1 = pos1;
+        m_pos2 = pos2;
+        m_num = num;
+    }
+
+    /**
+     * @brief The type name objects of this landmark are given, e.g. "flag p l c".
+     */
+    public String getTypeName() {
+        return m_typeName;
+    }
+
+    /**
+     * @brief Looks up a flag by its decoded name, as in FlagInfo.
+     * @param type  p|g or ' '
+     * @param pos1  l|r|t|b|c or ' '
+     * @param pos2  t|b|l|r|c or ' '
+     * @param num   0|10|20|30|40|50
+     * @return The flag, or null if the server has no such flag.
+     */
+    public static Landmark flag(char type, char pos1, char pos2, int num) {
+        if (num % 10 != 0 || num < 0 || num > 50) {
+            return null;
+        }
+        int key = flagKey(type, pos1, pos2, num);
+        return key < 0 ? null : FLAGS[key];
+    }
+
+    /**
+     * @brief Looks up a goal by side.
+     * @return GOAL_L, GOAL_R, or null for any other side.
+     */
+    public static Landmark goal(char side) {
+        switch (side) {
+            case 'l': return GOAL_L;
+            case 'r': return GOAL_R;
+            default:  return null;
+        }
+    }
+
+    /**
+     * @brief Looks up a line by kind.
+     * @return LINE_L, LINE_R, LINE_T, LINE_B, or null for any other kind.
+     */
+    public static Landmark line(char kind) {
+        switch (kind) {
+            case 'l': return LINE_L;
+            case 'r': return LINE_R;
+            case 't': return LINE_T;
+            case 'b': return LINE_B;
+            default:  return null;
+        }
+    }
+
+    private static int flagKey(char type, char pos1, char pos2, int num) {
+        int t = " pg".indexOf(type);
+        int p1 = " lrtbc".indexOf(pos1);
+        int p2 = " lrtbc".indexOf(pos2);
+        if (t < 0 || p1 < 0 || p2 < 0) {
+            return -1;
+        }
+        return ((t * 6 + p1) * 6 + p2) * 6 + num / 10;
+    }
+}
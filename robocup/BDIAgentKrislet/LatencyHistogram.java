@@ -0,0 +1,119 @@
+/**
+*   Counts durations in buckets whose width grows with the duration, so that
+*   percentiles can be read with a few percent of error over nanoseconds to
+*   minutes in a fixed array.
+*
+*   Durations below 16 ns have a bucket each. Above that every power of two
+*   is split into 16 buckets, so a bucket is at most 1/16 of its lower bound
+*   wide. record() only updates counters, so it allocates nothing and costs
+*   some tens of nanoseconds.
+*
+*   Meant for one thread recording. Other threads may read the histogram
+*   while it is recorded to, without locking. The count, total and maximum
+*   are volatile and the count is written last, so a reader sees at least
+*   the durations it counts in the buckets; it may also see the latest
+*   duration in the buckets, total or maximum before it is counted.
+*/
+class LatencyHistogram
+{
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] m_counts = new long[BUCKETS];
+    private volatile long m_count;
+    private volatile long m_total;
+    private volatile long m_max;
+
+    /**
+     * @brief Counts a duration, in ns. Negative ones count as 0.
+     */
+    public void record(long nanos)
+    {
+	if(nanos < 0)
+	    nanos = 0;
+	m_counts[bucket(nanos)]++;
+	m_total += nanos;
+	if(nanos > m_max)
+	    m_max = nanos;
+	// Last, as it makes the others visible to readers
+	m_count++;
+    }
+
+    public long getCount()
+    {
+	return m_count;
+    }
+
+    /**
+     * @brief The longest duration recorded, in ns.
+     */
+    public long getMax()
+    {
+	return m_max;
+    }
+
+    /**
+     * @brief The mean duration, in ns.
+     */
+    public double getMean()
+    {
+	long count = m_count;
+	return count == 0 ? 0 : (double)m_total / count;
+    }
+
+    /**
+     * @brief The duration that a fraction of the recorded ones do not exceed,
+     * in ns: the upper bound of its bucket, or the maximum if that is lower.
+     * @param fraction e.g. 0.99 for the 99th percentile.
+     */
+    public long getPercentile(double fraction)
+    {
+	long count = m_count;
+	if(count == 0)
+	    return 0;
+	long rank = Math.max(1, (long)Math.ceil(fraction * count));
+	long seen = 0;
+	for(int i = 0 ; i < BUCKETS ; i ++)
+	    {
+		seen += m_counts[i];
+		if(seen >= rank)
+		    return Math.min(upperBound(i), m_max);
+	    }
+	return m_max;
+    }
+
+    /**
+     * @brief p50, p99 and max in microseconds, and the count.
+     */
+    public String summary()
+    {
+	return String.format("p50 %.1f us, p99 %.1f us, max %.1f us (%d)",
+			     getPercentile(0.50) / 1000.0, getPercentile(0.99) / 1000.0,
+			     getMax() / 1000.0, getCount());
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the bucket of a duration: the power of two it
+    // falls in and the sixteenth of that power
+    static int bucket(long nanos)
+    {
+	if(nanos < SUB_BUCKETS)
+	    return (int)nanos;
+	int power = 63 - Long.numberOfLeadingZeros(nanos);
+	int sub = (int)(nanos >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+	return (power - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the largest duration that falls in a bucket
+    static long upperBound(int bucket)
+    {
+	if(bucket < SUB_BUCKETS)
+	    return bucket;
+	int power = bucket / SUB_BUCKETS + SUB_BITS - 1;
+	int sub = bucket % SUB_BUCKETS;
+	long lower = (1L << power) + ((long)sub << (power - SUB_BITS));
+	return lower + (1L << (power - SUB_BITS)) - 1;
+    }
+}
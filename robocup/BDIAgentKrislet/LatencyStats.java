@@ -0,0 +1,54 @@
+/**
+*   Where one player's time goes between a see message arriving and the
+*   command chosen from it going out, as a LatencyHistogram per stage.
+*
+*   Krislet stamps each see message with its arrival when receive() returns
+*   it. Brain records PARSE when the parsed message reaches it, and the
+*   other stages as it decides: how old the frame is when the brain takes
+*   it up, getting the perceptions, deciding, and sending the command, and
+*   END_TO_END from the see arriving to the command going out.
+*/
+class LatencyStats
+{
+    public enum Stage
+    {
+	PARSE,		// see received to parsed and stored
+	FRAME_AGE,	// see received to the brain taking it up
+	PERCEIVE,	// Brain.getPerceptions()
+	DECIDE,		// DecisionEngine.getIntent(), or waiting for its intent
+	SEND,		// intent to its command sent
+	END_TO_END	// see received to the command chosen from it sent
+    }
+
+    private final LatencyHistogram[] m_stages = new LatencyHistogram[Stage.values().length];
+
+    public LatencyStats()
+    {
+	for(int i = 0 ; i < m_stages.length ; i ++)
+	    m_stages[i] = new LatencyHistogram();
+    }
+
+    /**
+     * @brief Records the duration of a stage, in ns.
+     */
+    public void record(Stage stage, long nanos)
+    {
+	m_stages[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage)
+    {
+	return m_stages[stage.ordinal()];
+    }
+
+    /**
+     * @brief One line per stage with its p50, p99 and max.
+     */
+    public String report()
+    {
+	StringBuilder report = new StringBuilder("Latency per stage:");
+	for(Stage stage : Stage.values())
+	    report.append(String.format("%n    %-10s ", stage)).append(get(stage).summary());
+	return report.toString();
+    }
+}
@@ -5,6 +5,8 @@
 //  Modified by:      Jon Menard
 //  Date:             November 28, 2021
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
 
 class Memory 
 {
@@ -17,22 +19,48 @@ class Memory
 
 
     //---------------------------------------------------------------------------
-    // This function puts see information into our memory
+    // This function puts see information into our memory and wakes up
+    // anyone waiting for it
     public void store(VisualInfo info)
     {
-	m_info = info;
+	m_lock.lock();
+	try
+	    {
+		m_info = info;
+		m_sequence ++;
+		m_newInfo.signalAll();
+	    }
+	finally
+	    {
+		m_lock.unlock();
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the latest see information as one frame, waiting
+    // for the first one if nothing has been seen yet. A frame is never
+    // modified once stored; store() replaces the whole frame at once, so
+    // everything read from one frame comes from the same see message.
+    public VisualInfo getFrame()
+    {
+	VisualInfo frame = m_info;
+	while( frame == null )
+	    {
+		waitForNewInfo();
+		frame = m_info;
+	    }
+	return frame;
     }
 
     //---------------------------------------------------------------------------
     // This function looks for specified object
     public ObjectInfo getObject(String name) 
     {
-	if( m_info == null )
-	    waitForNewInfo();
+	VisualInfo frame = getFrame();
 
-	for(int c = 0 ; c < m_info.m_objects.size() ; c ++)
+	for(int c = 0 ; c < frame.m_objects.size() ; c ++)
 	    {
-		ObjectInfo object = (ObjectInfo)m_info.m_objects.elementAt(c);
+		ObjectInfo object = (ObjectInfo)frame.m_objects.elementAt(c);
 		if(object.m_type.compareTo(name) == 0)
 		    return object;
 	    }												 
@@ -40,17 +68,30 @@ class Memory
 	return null;
     }
 
+    //---------------------------------------------------------------------------
+    // This function looks up a fixed object by its catalogue id
+    public ObjectInfo getObject(Landmark landmark)
+    {
+	return getFrame().getObject(landmark);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns all the players currently seen
+    public List<PlayerInfo> getPlayers()
+    {
+	return getFrame().getPlayerList();
+    }
+
     //---------------------------------------------------------------------------
     // This function looks for all instances of a specified object name
     public List<ObjectInfo> getObjects(String name) 
     {
     List<ObjectInfo> objects = new LinkedList<ObjectInfo>();
-	if( m_info == null )
-	    waitForNewInfo();
+	VisualInfo frame = getFrame();
 
-	for(int c = 0 ; c < m_info.m_objects.size() ; c ++)
+	for(int c = 0 ; c < frame.m_objects.size() ; c ++)
 	    {
-		ObjectInfo object = (ObjectInfo)m_info.m_objects.elementAt(c);
+		ObjectInfo object = (ObjectInfo)frame.m_objects.elementAt(c);
 		if(object.m_type.compareTo(name) == 0)
             objects.add(object);
 	    }												 
@@ -63,26 +104,97 @@ class Memory
     // This function waits for new visual information
     public void waitForNewInfo() 
     {
-	// first remove old info
-	m_info = null;
-	// now wait until we get new copy
-	while(m_info == null)
+	waitForNewInfo(0);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function waits for new visual information for at most the given
+    // number of milliseconds (0 waits for as long as it takes). The waiting
+    // thread is woken by store() as soon as the information arrives.
+    // Returns false if the time ran out or the thread was interrupted, in
+    // which case the previous frame stays current.
+    public boolean waitForNewInfo(long timeoutMillis) 
+    {
+	long start = System.nanoTime();
+	boolean received = true;
+	m_lock.lock();
+	try
 	    {
-		// We can get information faster then 75 miliseconds
-		try
-		    {
-			Thread.sleep(SIMULATOR_STEP);
-		    }
-		catch(Exception e)
+		// wait until a newer frame than the current one is stored
+		long sequence = m_sequence;
+		long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while(m_sequence == sequence)
 		    {
+			if(timeoutMillis == 0)
+			    m_newInfo.await();
+			else if(remaining <= 0)
+			    {
+				m_timeouts ++;
+				received = false;
+				break;
+			    }
+			else
+			    remaining = m_newInfo.awaitNanos(remaining);
 		    }
 	    }
+	catch(InterruptedException e)
+	    {
+		Thread.currentThread().interrupt();
+		received = false;
+	    }
+	finally
+	    {
+		m_lock.unlock();
+	    }
+
+	long waited = System.nanoTime() - start;
+	m_waits ++;
+	m_totalWaitNanos += waited;
+	m_lastWaitNanos = waited;
+	if(waited > m_maxWaitNanos)
+	    m_maxWaitNanos = waited;
+	return received;
+    }
+
+    //---------------------------------------------------------------------------
+    // Metrics of how long callers actually waited in waitForNewInfo
+    public long getWaitCount()
+    {
+	return m_waits;
+    }
+
+    public long getTotalWaitNanos()
+    {
+	return m_totalWaitNanos;
+    }
+
+    public long getLastWaitNanos()
+    {
+	return m_lastWaitNanos;
+    }
+
+    public long getMaxWaitNanos()
+    {
+	return m_maxWaitNanos;
+    }
+
+    public long getTimeoutCount()
+    {
+	return m_timeouts;
     }
 
 
     //===========================================================================
     // Private members
     volatile private VisualInfo	m_info;	// place where all information is stored
-    final static int SIMULATOR_STEP = 100;
+    private final Lock m_lock = new ReentrantLock();
+    private final Condition m_newInfo = m_lock.newCondition();	// signalled by store()
+    private long m_sequence;	// number of infos stored, guarded by m_lock
+    // wait metrics, written only by the waiting (brain) thread
+    volatile private long m_waits;
+    volatile private long m_totalWaitNanos;
+    volatile private long m_lastWaitNanos;
+    volatile private long m_maxWaitNanos;
+    volatile private long m_timeouts;
 }
 
@@ -23,6 +23,7 @@ class ObjectInfo
   public float m_direction;
   public float m_distChange;
   public float m_dirChange;
+  public Landmark m_landmark;   // null unless this is a fixed object of the field
 
   //===========================================================================
   // Initialization member functions
@@ -55,6 +56,11 @@ class ObjectInfo
   {
     return m_type;
   }
+
+  public Landmark getLandmark()
+  {
+    return m_landmark;
+  }
 }
 
 
@@ -137,7 +143,7 @@ class GoalInfo extends ObjectInfo
 
   public GoalInfo(char side)
   {
-    super("goal " + side);
+    super(typeName(side));
     m_side = side;
   }
 
@@ -145,6 +151,14 @@ class GoalInfo extends ObjectInfo
   {
     return m_side;
   }
+
+  // Goals of the two sides share the catalogue's type name instead of
+  // building a new string for every goal seen
+  private static String typeName(char side)
+  {
+    Landmark goal = Landmark.goal(side);
+    return goal != null ? goal.getTypeName() : "goal " + side;
+  }
 }
 
 
@@ -0,0 +1,184 @@
+import jason.asSemantics.*;
+import jason.asSyntax.*;
+import jason.bb.BeliefBase;
+
+import java.util.Collection;
+
+/**
+*   A Jason Agent whose belief update (buf) applies only the percepts that
+*   changed since the previous cycle.
+*
+*   Jason's default buf() wraps every percept in a set and walks every
+*   percept in the belief base to find out what changed. The percepts of
+*   this agent are Belief atoms, so a cycle's percepts fit in a BeliefSet.
+*   JasonAgent hands that set over with setPerceptions(), and the changes
+*   are the bits that differ from the last one; only those beliefs are
+*   added to or removed from the belief base. As every reasoning cycle of a
+*   decision perceives the same set, most updates find nothing to do. The
+*   same events are generated as by the default buf(): a -belief event for a
+*   removed percept if a plan or listener wants it, then a +belief event
+*   for every added percept.
+*
+*   Benchmarks beliefs measures about 1000 bytes per update that changes
+*   beliefs, against 2400 for the default buf(), and 100-170 ns for one that
+*   does not; time per changing update varies too much to compare. Percepts
+*   given to buf() without a set are looked up one by one.
+*
+*   Any percept that is not a Belief atom (or a belief base that no longer
+*   matches the last cycle) makes the agent fall back to the default buf(),
+*   which resynchronises it.
+*/
+public class PerceptionAgent extends Agent {
+
+    /**
+    *   The belief base entry of each Belief, annotated source(percept), indexed
+    *   by ordinal. Only used to look beliefs up and remove them, never stored.
+    */
+    private static final Literal[] BELIEF_BASE_LITERALS = createBeliefBaseLiterals();
+
+    private long believed = BeliefSet.EMPTY;     // BeliefSet in the belief base
+    private boolean synced = true;
+    private long perceptions;                   // BeliefSet of the next buf()
+    private boolean perceptionsSet = false;
+
+    // Written by the thread that reasons and read by others (PlayerMetrics)
+    private volatile int lastChanges = 0;
+    private volatile long totalChanges = 0;
+    private volatile long updates = 0;
+    private volatile long fullUpdates = 0;
+
+    /**
+    *   Gives the next buf() its percepts as a BeliefSet, which must hold
+    *   the same beliefs as the percepts it is passed.
+    */
+    public void setPerceptions(long perceptions) {
+        this.perceptions = perceptions;
+        perceptionsSet = true;
+    }
+
+    /**
+    *   Updates the belief base from the current percepts.
+    *   @return The number of percepts added or removed.
+    */
+    @Override
+    public int buf(Collection<Literal> percepts) {
+        if (percepts == null) {
+            return 0;
+        }
+
+        long current = perceptions;
+        boolean beliefAtoms = true;
+        if (perceptionsSet) {
+            perceptionsSet = false;
+        } else {
+            current = BeliefSet.EMPTY;
+            for (Literal percept : percepts) {
+                Belief belief = percept.isAtom() ? Belief.forPercept(percept.getFunctor()) : null;
+                if (belief == null) {
+                    beliefAtoms = false;
+                    break;
+                }
+                current |= belief.mask;
+            }
+        }
+
+        int changes;
+        if (beliefAtoms && synced) {
+            changes = applyChanges(believed, current);
+        } else {
+            changes = super.buf(percepts);
+            synced = beliefAtoms;
+            fullUpdates++;
+        }
+        believed = current;
+
+        lastChanges = changes;
+        totalChanges += changes;
+        updates++;
+        return changes;
+    }
+
+    /**
+    *   Removes the beliefs that are in previous but not in current and adds
+    *   those that are in current but not in previous.
+    */
+    private int applyChanges(long previous, long current) {
+        long changed = previous ^ current;
+        if (changed == 0) {
+            return 0;
+        }
+        BeliefBase bb = getBB();
+        int changes = 0;
+
+        for (long set = changed & previous; set != 0; set = BeliefSet.next(set)) {
+            Belief belief = BeliefSet.first(set);
+            if (!bb.remove(BELIEF_BASE_LITERALS[belief.ordinal()])) {
+                // Something else removed it, so the next cycle compares everything
+                synced = false;
+                continue;
+            }
+            changes++;
+            Trigger te = new Trigger(Trigger.TEOperator.del, Trigger.TEType.belief, BELIEF_BASE_LITERALS[belief.ordinal()]);
+            if (ts.getC().hasListener() || pl.hasCandidatePlan(te)) {
+                // Events outlive this cycle, so they get a literal of their own
+                te.setLiteral(createBeliefBaseLiteral(belief));
+                ts.getC().addEvent(new Event(te, Intention.EmptyInt));
+            }
+        }
+
+        for (long set = changed & current; set != 0; set = BeliefSet.next(set)) {
+            // The belief base keeps the literal it is given, so each add needs its own
+            Literal literal = createBeliefBaseLiteral(BeliefSet.first(set));
+            if (!bb.add(literal)) {
+                synced = false;
+                continue;
+            }
+            changes++;
+            ts.updateEvents(new Event(new Trigger(Trigger.TEOperator.add, Trigger.TEType.belief, literal), Intention.EmptyInt));
+        }
+        return changes;
+    }
+
+    /**
+    *   @return The number of beliefs added or removed by the last update.
+    */
+    public int getLastChangeCount() {
+        return lastChanges;
+    }
+
+    /**
+    *   @return The number of beliefs added or removed by all updates.
+    */
+    public long getChangeCount() {
+        return totalChanges;
+    }
+
+    /**
+    *   @return The number of belief updates.
+    */
+    public long getUpdateCount() {
+        return updates;
+    }
+
+    /**
+    *   @return How many of the updates fell back to Jason's full comparison.
+    */
+    public long getFullUpdateCount() {
+        return fullUpdates;
+    }
+
+    private static Literal createBeliefBaseLiteral(Belief belief) {
+        Literal literal = new LiteralImpl(belief.getPerceptName());
+        literal.addAnnot(BeliefBase.TPercept);
+        return literal;
+    }
+
+    private static Literal[] createBeliefBaseLiterals() {
+        Belief[] beliefs = Belief.values();
+        Literal[] literals = new Literal[beliefs.length];
+        for (Belief belief : beliefs) {
+            literals[belief.ordinal()] = createBeliefBaseLiteral(belief);
+        }
+        return literals;
+    }
+}
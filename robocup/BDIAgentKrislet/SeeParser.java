@@ -0,0 +1,503 @@
+import java.io.*;
+import java.util.*;
+
+/**
+*   Single-pass tokenizer for see messages such as
+*
+*       (see 120 ((f c) 10.5 5) ((b) 3.2 -20 0 0) ((p "BDI" 2) 8 10 0 0 0 0))
+*
+*   It walks the message once, from left to right, and builds the same
+*   ObjectInfo graph the original regex parser in VisualInfo produced. There
+*   is no Pattern, no String.split and no Float.valueOf: names are compared
+*   character by character and numbers are parsed in place. Fixed objects are
+*   identified against the Landmark catalogue as they are created.
+*/
+class SeeParser
+{
+    private static final int MAX_NAME_TOKENS = 4;
+    private static final int MAX_VALUES = 7;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+	1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+	1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final CharSequence m_message;
+    private final int m_end;
+    private int m_pos;
+
+    // Token boundaries of the object name currently being parsed
+    private final int[] m_tokenStart;
+    private final int[] m_tokenEnd;
+    private int m_tokens;
+
+    // Numbers following the object name currently being parsed
+    private final float[] m_values;
+    private int m_valueCount;
+
+    public SeeParser(CharSequence message)
+    {
+	m_message = message;
+	m_end = message.length();
+	m_tokenStart = new int[MAX_NAME_TOKENS + 1];
+	m_tokenEnd = new int[MAX_NAME_TOKENS + 1];
+	m_values = new float[MAX_VALUES + 1];
+    }
+
+    /**
+     * @brief Parses the message and adds every object it describes.
+     * @param info Receives one ObjectInfo per seen object, in message order.
+     * Nothing is added if the message is not a see message.
+     * @return The simulation time stamped on the message.
+     */
+    public int parse(VisualInfo info)
+	throws IOException
+    {
+	m_pos = 0;
+	expect('(');
+	int typeStart = m_pos;
+	while(m_pos < m_end && isWordChar(m_message.charAt(m_pos)))
+	    m_pos ++;
+	int typeEnd = m_pos;
+	if(typeEnd == typeStart)
+	    fail();
+	expectSpace();
+	int time = parseInt();
+	expectSpace();
+
+	if(!regionEquals(typeStart, typeEnd, "see"))
+	    return time;
+
+	while(true)
+	    {
+		skipSpaces();
+		if(m_pos + 1 >= m_end
+		   || m_message.charAt(m_pos) != '('
+		   || m_message.charAt(m_pos + 1) != '(')
+		    break;
+		m_pos += 2;
+		ObjectInfo objInfo = parseObject();
+		if(objInfo != null)
+		    info.add(objInfo);
+	    }
+	return time;
+    }
+
+    //===========================================================================
+    // Objects
+
+    //---------------------------------------------------------------------------
+    // This function parses "name tokens) values)" of one object; the two
+    // opening brackets have already been consumed
+    private ObjectInfo parseObject()
+	throws IOException
+    {
+	// name tokens, up to the closing bracket of the name
+	m_tokens = 0;
+	while(m_pos < m_end && m_message.charAt(m_pos) != ')')
+	    {
+		skipSpaces();
+		int start = m_pos;
+		while(m_pos < m_end && !isSpace(m_message.charAt(m_pos))
+		      && m_message.charAt(m_pos) != ')')
+		    m_pos ++;
+		if(m_tokens <= MAX_NAME_TOKENS)
+		    {
+			m_tokenStart[m_tokens] = start;
+			m_tokenEnd[m_tokens] = m_pos;
+		    }
+		m_tokens ++;
+	    }
+	expect(')');
+
+	// numbers, up to the closing bracket of the object
+	m_valueCount = 0;
+	while(true)
+	    {
+		skipSpaces();
+		if(m_pos >= m_end)
+		    fail();
+		if(m_message.charAt(m_pos) == ')')
+		    break;
+		float value = parseFloat();
+		if(m_valueCount <= MAX_VALUES)
+		    m_values[m_valueCount] = value;
+		m_valueCount ++;
+	    }
+	m_pos ++;
+
+	ObjectInfo objInfo = createObject();
+	if(objInfo != null)
+	    setPosition(objInfo);
+	return objInfo;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function creates the object named by the current tokens, following
+    // the rules of VisualInfo.createNewObject
+    private ObjectInfo createObject()
+    {
+	int len = m_tokens;
+	// The server never sends more than four name tokens
+	if(len == 0 || len > MAX_NAME_TOKENS)
+	    return null;
+
+	if(tokenIsKind(0, "player", 'p'))
+	    {
+		String team = "";
+		int uniformNumber = 0;
+		boolean goalie = false;
+		switch(len){
+		case 4: goalie = tokenEquals(3, "goalie");
+		case 3: uniformNumber = tokenInt(2);
+		case 2: team = tokenWithoutQuotes(1);
+		    return new PlayerInfo(team, uniformNumber, goalie);
+		default: return new PlayerInfo();
+		}
+	    }
+	else if(tokenIsKind(0, "ball", 'b'))
+	    {
+		BallInfo ball = new BallInfo();
+		ball.m_landmark = Landmark.BALL;
+		return ball;
+	    }
+	else if(tokenIsKind(0, "goal", 'g'))
+	    {
+		if(len != 2)
+		    return new GoalInfo();
+		GoalInfo goal = new GoalInfo(tokenChar(1));
+		goal.m_landmark = Landmark.goal(tokenChar(1));
+		return goal;
+	    }
+	else if(tokenIsKind(0, "line", 'l'))
+	    {
+		if(len != 2)
+		    return new LineInfo();
+		LineInfo line = new LineInfo(tokenChar(1));
+		line.m_landmark = Landmark.line(tokenChar(1));
+		return line;
+	    }
+	else if(tokenIsKind(0, "flag", 'f'))
+	    {
+		if(len == 1)
+		    return new FlagInfo();
+		return createFlag(len);
+	    }
+	return null;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function decodes the flag name tokens, e.g. "f p l c" or "f t l 10"
+    private ObjectInfo createFlag(int len)
+    {
+	char type = ' '; // p|g
+	char pos1 = ' '; // l|r|t|b|c
+	char pos2 = ' '; // t|b|l|r|c
+	int num = 0;     // 0|10|20|30|40|50
+	boolean out = true;
+
+	if(tokenIsOneOf(1, "pg"))
+	    {
+		type = tokenChar(1);
+		out = false;
+		switch(len){
+		case 4:
+		    pos2 = tokenChar(3);
+		    pos1 = tokenChar(2);
+		    break;
+		case 3:
+		    if(tokenIsOneOf(2, "lr"))
+			pos1 = tokenChar(2);
+		    else
+			pos2 = tokenChar(2);
+		    break;
+		}
+	    }
+	else if(tokenEquals(len - 1, "0"))
+	    {
+		if(len == 3)
+		    pos1 = tokenChar(1);
+	    }
+	else if(tokenIsTwoDigits(len - 1))
+	    {
+		num = tokenInt(len - 1);
+		switch(len){
+		case 4:
+		    pos2 = tokenChar(2);
+		    pos1 = tokenChar(1);
+		    break;
+		case 3:
+		    if(tokenIsOneOf(1, "lr"))
+			pos1 = tokenChar(1);
+		    else
+			pos2 = tokenChar(1);
+		    break;
+		}
+	    }
+	else
+	    {
+		out = false;
+		switch(len){
+		case 3:
+		    pos2 = tokenChar(2);
+		    pos1 = tokenChar(1);
+		    break;
+		case 2:
+		    if(tokenIsOneOf(1, "lrc"))
+			pos1 = tokenChar(1);
+		    else
+			pos2 = tokenChar(1);
+		    break;
+		}
+	    }
+
+	Landmark landmark = Landmark.flag(type, pos1, pos2, num);
+	String flagType;
+	if(landmark != null)
+	    flagType = landmark.getTypeName();
+	else
+	    {
+		// Not a flag the server knows about; name it the old way
+		flagType = "flag";
+		if (type != ' ') flagType = flagType + " " + type;
+		if (pos1 != ' ') flagType = flagType + " " + pos1;
+		if (pos2 != ' ') flagType = flagType + " " + pos2;
+	    }
+	FlagInfo flag = new FlagInfo(flagType, type, pos1, pos2, num, out);
+	flag.m_landmark = landmark;
+	return flag;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function stores the numbers that followed the object name. The
+    // meaning depends on how many there are: direction only, distance and
+    // direction, plus distance and direction change, plus body and head
+    // direction for players.
+    private void setPosition(ObjectInfo objInfo)
+    {
+	float[] v = m_values;
+	if(m_valueCount == 0)
+	    return;
+	switch(m_valueCount){
+	case 6: if(objInfo instanceof PlayerInfo)
+		    ((PlayerInfo)(objInfo)).m_headDir = v[5];
+	case 5: if(objInfo instanceof PlayerInfo)
+		    ((PlayerInfo)(objInfo)).m_bodyDir = v[4];
+	case 4: objInfo.m_dirChange = v[3];
+	case 3: objInfo.m_distChange = v[2];
+	case 2: objInfo.m_distance = v[0];
+		objInfo.m_direction = v[1];
+		break;
+	default: objInfo.m_direction = v[0]; break;
+	}
+    }
+
+    //===========================================================================
+    // Tokens of the current object name
+
+    private boolean tokenIsKind(int token, String longName, char shortName)
+    {
+	int start = m_tokenStart[token];
+	int length = m_tokenEnd[token] - start;
+	if(length == 1)
+	    return Character.toLowerCase(m_message.charAt(start)) == shortName;
+	if(length != longName.length())
+	    return false;
+	for(int c = 0 ; c < length ; c ++)
+	    if(Character.toLowerCase(m_message.charAt(start + c)) != longName.charAt(c))
+		return false;
+	return true;
+    }
+
+    private boolean tokenEquals(int token, String text)
+    {
+	return token < m_tokens && token <= MAX_NAME_TOKENS
+	    && regionEquals(m_tokenStart[token], m_tokenEnd[token], text);
+    }
+
+    private boolean tokenIsOneOf(int token, String chars)
+    {
+	return m_tokenEnd[token] - m_tokenStart[token] == 1
+	    && chars.indexOf(m_message.charAt(m_tokenStart[token])) >= 0;
+    }
+
+    private boolean tokenIsTwoDigits(int token)
+    {
+	int start = m_tokenStart[token];
+	return m_tokenEnd[token] - start == 2
+	    && isDigit(m_message.charAt(start))
+	    && isDigit(m_message.charAt(start + 1));
+    }
+
+    private char tokenChar(int token)
+    {
+	return m_message.charAt(m_tokenStart[token]);
+    }
+
+    private int tokenInt(int token)
+    {
+	int value = 0;
+	for(int c = m_tokenStart[token] ; c < m_tokenEnd[token] ; c ++)
+	    value = value * 10 + (m_message.charAt(c) - '0');
+	return value;
+    }
+
+    private String tokenWithoutQuotes(int token)
+    {
+	int start = m_tokenStart[token];
+	int end = m_tokenEnd[token];
+	if(end - start >= 2 && m_message.charAt(start) == '"'
+	   && m_message.charAt(end - 1) == '"')
+	    {
+		start ++;
+		end --;
+	    }
+	String team = m_message.subSequence(start, end).toString();
+	if(team.indexOf('"') >= 0)
+	    team = team.replace("\"", "");
+	return team;
+    }
+
+    //===========================================================================
+    // Scanning
+
+    //---------------------------------------------------------------------------
+    // This function parses a decimal number such as "-12.5" or "3e-05" at the
+    // current position. Numbers whose digits fit in a double mantissa and
+    // whose exponent is small are computed exactly in double precision;
+    // anything else falls back to Float.parseFloat.
+    private float parseFloat()
+	throws IOException
+    {
+	int start = m_pos;
+	boolean negative = false;
+	if(m_pos < m_end && (m_message.charAt(m_pos) == '-' || m_message.charAt(m_pos) == '+'))
+	    negative = m_message.charAt(m_pos ++) == '-';
+
+	long mantissa = 0;
+	int digits = 0;
+	int exponent = 0;
+	boolean exact = true;
+	boolean seenDigit = false;
+	boolean seenPoint = false;
+	while(m_pos < m_end)
+	    {
+		char c = m_message.charAt(m_pos);
+		if(isDigit(c))
+		    {
+			seenDigit = true;
+			if(digits < 18)
+			    {
+				mantissa = mantissa * 10 + (c - '0');
+				if(mantissa != 0)
+				    digits ++;
+				if(seenPoint)
+				    exponent --;
+			    }
+			else
+			    {
+				exact = false;
+				if(!seenPoint)
+				    exponent ++;
+			    }
+		    }
+		else if(c == '.' && !seenPoint)
+		    seenPoint = true;
+		else
+		    break;
+		m_pos ++;
+	    }
+	if(!seenDigit)
+	    fail();
+
+	if(m_pos < m_end && (m_message.charAt(m_pos) == 'e' || m_message.charAt(m_pos) == 'E'))
+	    {
+		m_pos ++;
+		boolean negativeExponent = false;
+		if(m_pos < m_end && (m_message.charAt(m_pos) == '-' || m_message.charAt(m_pos) == '+'))
+		    negativeExponent = m_message.charAt(m_pos ++) == '-';
+		int value = 0;
+		int exponentStart = m_pos;
+		while(m_pos < m_end && isDigit(m_message.charAt(m_pos)) && value < 10000)
+		    value = value * 10 + (m_message.charAt(m_pos ++) - '0');
+		if(m_pos == exponentStart)
+		    fail();
+		exponent += negativeExponent ? -value : value;
+	    }
+	if(m_pos < m_end && !isSpace(m_message.charAt(m_pos)) && m_message.charAt(m_pos) != ')')
+	    fail();
+
+	if(!exact || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+	    return Float.parseFloat(m_message.subSequence(start, m_pos).toString());
+
+	double value = exponent < 0
+	    ? mantissa / POWERS_OF_TEN[-exponent]
+	    : mantissa * POWERS_OF_TEN[exponent];
+	return (float)(negative ? -value : value);
+    }
+
+    private int parseInt()
+	throws IOException
+    {
+	int start = m_pos;
+	int value = 0;
+	while(m_pos < m_end && isDigit(m_message.charAt(m_pos)))
+	    value = value * 10 + (m_message.charAt(m_pos ++) - '0');
+	if(m_pos == start)
+	    fail();
+	return value;
+    }
+
+    private void expect(char c)
+	throws IOException
+    {
+	if(m_pos >= m_end || m_message.charAt(m_pos) != c)
+	    fail();
+	m_pos ++;
+    }
+
+    private void expectSpace()
+	throws IOException
+    {
+	if(m_pos >= m_end || !isSpace(m_message.charAt(m_pos)))
+	    fail();
+	m_pos ++;
+    }
+
+    private void skipSpaces()
+    {
+	while(m_pos < m_end && isSpace(m_message.charAt(m_pos)))
+	    m_pos ++;
+    }
+
+    private boolean regionEquals(int start, int end, String text)
+    {
+	if(end - start != text.length())
+	    return false;
+	for(int c = 0 ; c < text.length() ; c ++)
+	    if(m_message.charAt(start + c) != text.charAt(c))
+		return false;
+	return true;
+    }
+
+    private void fail()
+	throws IOException
+    {
+	throw new IOException(m_message.toString());
+    }
+
+    private static boolean isDigit(char c)
+    {
+	return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c)
+    {
+	return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isWordChar(char c)
+    {
+	return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.*;
+
+/**
+*   Reads what CycleScheduler needs from a sense_body message such as
+*
+*       (sense_body 120 (view_mode high normal) (stamina 8000 1) (speed 0 0)
+*        (head_angle 0) (kick 3) (dash 60) (turn 40) (say 0) (turn_neck 0)
+*        (catch 0) (move 1) (change_view 0) (arm (movable 0) (expires 0) ...))
+*
+*   the cycle it was sent in and how many body commands (kick, dash, turn,
+*   move and catch) the server has carried out. Like SeeParser it walks the
+*   message once, comparing names character by character and parsing numbers
+*   in place, so a message costs no Pattern, Matcher or String.
+*/
+class SenseBodyParser
+{
+    private static final String[] BODY_COMMANDS = {"kick", "dash", "turn", "move", "catch"};
+
+    private int m_time;
+    private long m_bodyCommands;
+
+    /**
+     * @brief Parses a sense_body message.
+     * @throws IOException if it is not one.
+     */
+    public void parse(CharSequence message)
+	throws IOException
+    {
+	int end = message.length();
+	String type = "(sense_body ";
+	if(end < type.length() || !regionEquals(message, 0, type))
+	    throw new IOException(message.toString());
+	int pos = type.length();
+	int time = 0;
+	int digits = 0;
+	for( ; pos < end && isDigit(message.charAt(pos)) ; pos ++, digits ++)
+	    time = time * 10 + message.charAt(pos) - '0';
+	if(digits == 0)
+	    throw new IOException(message.toString());
+
+	// Only the counts directly inside the message are commands; those in
+	// (arm ...) and the like are not
+	long commands = 0;
+	int depth = 1;
+	for( ; pos < end && depth > 0 ; pos ++)
+	    {
+		char c = message.charAt(pos);
+		if(c == ')')
+		    depth --;
+		else if(c == '(' && ++depth == 2)
+		    {
+			int name = pos + 1;
+			int nameEnd = name;
+			while(nameEnd < end && isLetter(message.charAt(nameEnd)))
+			    nameEnd ++;
+			if(nameEnd < end && message.charAt(nameEnd) == ' ' && isBodyCommand(message, name, nameEnd))
+			    {
+				long count = 0;
+				for(pos = nameEnd + 1 ; pos < end && isDigit(message.charAt(pos)) ; pos ++)
+				    count = count * 10 + message.charAt(pos) - '0';
+				commands += count;
+				pos --;
+			    }
+			else
+			    pos = nameEnd - 1;
+		    }
+	    }
+	m_time = time;
+	m_bodyCommands = commands;
+    }
+
+    /**
+     * @brief The cycle the last parsed message was sent in.
+     */
+    public int getTime()
+    {
+	return m_time;
+    }
+
+    /**
+     * @brief The body commands the last parsed message counts as carried out.
+     */
+    public long getBodyCommands()
+    {
+	return m_bodyCommands;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function tells whether the name between start and end is one of
+    // the body commands
+    private static boolean isBodyCommand(CharSequence message, int start, int end)
+    {
+	for(String command : BODY_COMMANDS)
+	    if(end - start == command.length() && regionEquals(message, start, command))
+		return true;
+	return false;
+    }
+
+    private static boolean regionEquals(CharSequence message, int start, String text)
+    {
+	for(int i = 0 ; i < text.length() ; i ++)
+	    if(message.charAt(start + i) != text.charAt(i))
+		return false;
+	return true;
+    }
+
+    private static boolean isDigit(char c)
+    {
+	return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c)
+    {
+	return (c >= 'a' && c <= 'z') || c == '_';
+    }
+}
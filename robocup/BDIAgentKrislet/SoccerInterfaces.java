@@ -33,6 +33,9 @@ interface SendCommand
     void changeView(String angle, String quality);
     // This function sends a bye command to the server
     void bye();
+    // This function tells the server in synchronous mode that the player is
+    // done with the current cycle
+    void done();
 }
 
 
@@ -7,5 +7,12 @@
 class SoccerParams 
 {
 	final static int	simulator_step = 100;
+
+	// Longest a player may reason about one decision, in milliseconds
+	final static int	decision_budget = simulator_step / 2;
+	// Most Jason reasoning cycles a player may run for one decision
+	final static int	reasoning_cycle_limit = 200;
+	// How far into each server cycle a player wakes up to act, in milliseconds
+	final static int	cycle_offset = simulator_step / 5;
 }
 
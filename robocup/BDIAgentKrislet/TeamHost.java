@@ -0,0 +1,172 @@
+//
+//	File:			TeamHost.java
+//
+//	Runs a whole team of players in one JVM.
+//
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+
+
+//***************************************************************************
+//
+//	TeamHost starts one Krislet player per line of a team file, all in the
+//	same JVM, instead of one JVM per player as TeamStart.bat does. The
+//	players share the loaded classes, the JIT compiled code and the JVM's
+//	own threads, and by default a single PlayerSelector thread receives
+//	the messages of all of them.
+//
+//***************************************************************************
+class TeamHost
+{
+    //---------------------------------------------------------------------------
+    // The main application function.
+    // Command line format:
+    //
+    // TeamHost -config team_file [-io selector|threads] [krislet parameters]
+    //
+    // The team file lists one player per line: the ASL file of the player
+    // (in the AgentSpecifications directory) followed by any Krislet
+    // parameters for that player alone. Empty lines and lines starting with
+    // # are ignored. All other parameters are passed to every player, e.g.
+    //
+    //	TeamHost -config BDITeam.txt -team BDI -host localhost
+    //
+    // Players connect one at a time in the order of the file, so they get
+    // their uniform numbers in that order.
+    //
+    // With -io selector (the default) one thread receives the messages of
+    // every player; with -io threads each player has its own, as it does
+    // when started on its own. Add -threads virtual to make those threads,
+    // and the brains', virtual threads.
+    //
+    public static void main(String a[])
+	throws IOException, InterruptedException
+    {
+	String		config = null;
+	boolean		selector = true;
+	List<String>	common = new ArrayList<String>();
+	for( int c = 0 ; c < a.length ; c += 2 )
+	    {
+		if( a[c].compareTo("-config") == 0 && c + 1 < a.length )
+		    config = a[c+1];
+		else if( a[c].compareTo("-io") == 0 && c + 1 < a.length )
+		    selector = a[c+1].compareTo("threads") != 0;
+		else
+		    {
+			common.add(a[c]);
+			if( c + 1 < a.length )
+			    common.add(a[c+1]);
+		    }
+	    }
+	if( config == null )
+	    {
+		System.err.println("USAGE: TeamHost -config team_file [-io selector|threads] [krislet parameters]");
+		return;
+	    }
+
+	List<String[]>	players = readTeam(config, common);
+	List<Krislet>	team = new ArrayList<Krislet>();
+	List<Thread>	threads = new ArrayList<Thread>();
+	PlayerSelector	io = selector ? new PlayerSelector() : null;
+	for( String[] arguments : players )
+	    {
+		Krislet player = Krislet.create(arguments);
+		if( player == null )
+		    {
+			// The players already connected would otherwise stay on
+			// the field until time_over
+			for( Krislet connected : team )
+			    connected.leave();
+			return;
+		    }
+		player.connect();
+		team.add(player);
+
+		if( io != null )
+		    {
+			io.add(player);
+			if( team.size() == 1 )
+			    {
+				io.start();
+				threads.add(io);
+			    }
+		    }
+		else
+		    {
+			final Krislet p = player;
+			threads.add(PlayerThreads.start(() -> play(p), "player-" + team.size()));
+		    }
+	    }
+
+	// Report how long it took and how much memory it needs to get the
+	// whole team ready to play
+	for( Krislet player : team )
+	    while( !player.isReady() )
+		Thread.sleep(10);
+	System.out.println(team.size() + " players ready after "
+			   + ManagementFactory.getRuntimeMXBean().getUptime() + " ms, "
+			   + memoryUsage() + ", " + Thread.activeCount() + " threads");
+
+	for( Thread thread : threads )
+	    thread.join();
+	for( int p = 0 ; p < team.size() ; p ++ )
+	    {
+		DatagramTransport transport = team.get(p).getTransport();
+		System.out.println("player " + (p + 1) + " received "
+				   + transport.getReceivedMessages() + " messages, "
+				   + transport.getReceivedBytes() + " bytes");
+	    }
+    }
+
+    //---------------------------------------------------------------------------
+    // This function reads the team file and returns the Krislet parameters
+    // of each player
+    static List<String[]> readTeam(String config, List<String> common)
+	throws IOException
+    {
+	List<String[]> players = new ArrayList<String[]>();
+	for( String line : Files.readAllLines(Paths.get(config)) )
+	    {
+		line = line.trim();
+		if( line.isEmpty() || line.startsWith("#") )
+		    continue;
+
+		String[]	fields = line.split("\\s+");
+		List<String>	arguments = new ArrayList<String>(common);
+		arguments.add("-asl");
+		arguments.addAll(Arrays.asList(fields));
+		players.add(arguments.toArray(new String[0]));
+	    }
+	return players;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function runs one player until it leaves the game
+    private static void play(Krislet player)
+    {
+	try{
+	    player.play();
+	}catch(IOException e){
+	    System.err.println("player stopped: " + e);
+	}
+    }
+
+    //---------------------------------------------------------------------------
+    // This function describes the memory used by the JVM: the resident set
+    // where the operating system reports it (Linux), and the heap
+    static String memoryUsage()
+    {
+	MemoryUsage	heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+	String		usage = "heap used " + (heap.getUsed() >> 20) + " MB";
+	try{
+	    for( String line : Files.readAllLines(Paths.get("/proc/self/status")) )
+		if( line.startsWith("VmRSS:") )
+		    usage = "resident " + (Long.parseLong(line.replaceAll("\\D", "")) >> 10) + " MB, " + usage;
+	}catch(IOException | RuntimeException e){
+	}
+	return usage;
+    }
+}
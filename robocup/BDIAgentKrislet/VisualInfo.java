@@ -23,27 +23,39 @@ import java.util.regex.*;
 class VisualInfo
 {
     private int	m_time;
+    private long m_arrival;			// System.nanoTime() when received, or 0
     public Vector<ObjectInfo> m_objects;
     public String m_message;
     
     // Split objects into specific lists
     private Vector<?> m_ball_list;
-    private Vector<?> m_player_list;
+    private Vector<PlayerInfo> m_player_list;
     private Vector<?> m_flag_list;
     private Vector<?> m_goal_list;
     private Vector<?> m_line_list;
+
+    // Fixed objects indexed by Landmark.ordinal(), null if not seen
+    private ObjectInfo[] m_landmarks;
     
     // Constructor for 'see' information
     public VisualInfo(String info)
     {
+	this();
 	info.trim();
 	m_message = info;
-	m_player_list = new Vector<Object>(22);
+    }
+
+    // Constructor for 'see' information that is parsed with parse(message)
+    // and not kept
+    public VisualInfo()
+    {
+	m_player_list = new Vector<PlayerInfo>(22);
 	m_ball_list = new Vector<Object>(1);
 	m_goal_list = new Vector<Object>(10);
 	m_line_list = new Vector<Object>(20);
 	m_flag_list = new Vector<Object>(60);
 	m_objects = new Vector<ObjectInfo>(113);
+	m_landmarks = new ObjectInfo[Landmark.COUNT];
     }
     
     public Vector<?> getBallList()
@@ -51,7 +63,7 @@ class VisualInfo
 	return m_ball_list;
     }
     
-    public Vector<?> getPlayerList()
+    public Vector<PlayerInfo> getPlayerList()
     {
 	return m_player_list;
     }
@@ -75,11 +87,74 @@ class VisualInfo
     {
 	return m_time;
     }
+
+    //---------------------------------------------------------------------------
+    // This function records when the message was received, as System.nanoTime()
+    public void setArrival(long arrival)
+    {
+	m_arrival = arrival;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns when the message was received, or 0 if unknown
+    public long getArrival()
+    {
+	return m_arrival;
+    }
+
+    //---------------------------------------------------------------------------
+    // This function returns the given fixed object, or null if it is not seen.
+    // It is a single array access; no names are compared.
+    public ObjectInfo getObject(Landmark landmark)
+    {
+	return m_landmarks[landmark.ordinal()];
+    }
+
+    //---------------------------------------------------------------------------
+    // This function records an object produced by the parser
+    void add(ObjectInfo object)
+    {
+	m_objects.addElement(object);
+	if(object.m_landmark != null)
+	    {
+		// keep the first one, as a search through m_objects would find
+		if(m_landmarks[object.m_landmark.ordinal()] == null)
+		    m_landmarks[object.m_landmark.ordinal()] = object;
+	    }
+	else if(object instanceof PlayerInfo)
+	    m_player_list.addElement((PlayerInfo)object);
+    }
     
     //---------------------------------------------------------------------------
     // This function parses visual information from the server
     public void parse()
 	throws IOException
+    {
+	parse(m_message);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function parses the given visual information from the server,
+    // which need not outlive the call
+    public void parse(CharSequence message)
+	throws IOException
+    {
+	m_player_list.clear();
+	m_ball_list.clear();
+	m_goal_list.clear();
+	m_line_list.clear();
+	m_flag_list.clear();
+	m_objects.clear();
+	Arrays.fill(m_landmarks, null);
+	m_time = new SeeParser(message).parse(this);
+    }
+
+    //---------------------------------------------------------------------------
+    // This function is the original regular expression parser. It is no longer
+    // used by the player; it is kept as the reference SeeParser is checked
+    // against (see Benchmarks).
+    void parseWithRegex()
+	throws IOException
     {
 	String m_type = null;
 	String m_objectsString = null;
@@ -0,0 +1,3 @@
+REM Start a team of Jason BDI agents with different roles, all in one JVM.
+cd ./BDIAgentKrislet
+start java -cp .;jason-2.3.jar TeamHost -config BDITeam.txt -team BDI